@@ -2,6 +2,8 @@ plugins {
     // Apply the application plugin to add support for building a CLI application in Java.
     application
     java
+    // JMH benchmarks live in src/jmh/java; run with ./gradlew jmh
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -20,6 +22,15 @@ dependencies {
     implementation("org.slf4j:slf4j-api:2.0.7")
     implementation("ch.qos.logback:logback-classic:1.4.8")
     implementation("com.mysql:mysql-connector-j:8.2.0")
+
+    // Embedded database for the repository benchmarks
+    jmh("com.h2database:h2:2.2.224")
+}
+
+jmh {
+    // Machine-readable results so runs can be compared over time
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
 }
 
 // Apply a specific Java toolchain to ease working on different environments.
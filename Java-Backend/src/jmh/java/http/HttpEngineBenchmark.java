@@ -0,0 +1,132 @@
+package http;
+
+import annotation.GetMapping;
+import annotation.PathVariable;
+import annotation.RequestMapping;
+import annotation.RestController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips through each server engine over keep-alive connections, one per benchmark
+ * thread, against the same router. Run with -prof gc to compare allocations per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class HttpEngineBenchmark {
+
+    public record Item(long id, String name) {
+    }
+
+    @RestController
+    @RequestMapping("/bench")
+    public static class BenchController {
+        @GetMapping("/{id}")
+        public Item get(@PathVariable("id") long id) {
+            return new Item(id, "item-" + id);
+        }
+    }
+
+    @Param({"jdk", "nio"})
+    public String engine;
+
+    private ServerEngine server;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        Properties cfg = new Properties();
+        cfg.setProperty("http.engine", engine);
+        cfg.setProperty("http.executor.threads", "8");
+        server = HttpServeFactory.createEngine(0, cfg);
+        server.createContext("/bench", new AnnotationBasedRouter(new BenchController()));
+        server.start();
+        port = server.address().getPort();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.stop(0);
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private static final byte[] REQUEST =
+                "GET /bench/42 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        private Socket socket;
+        private OutputStream out;
+        private InputStream in;
+        private final byte[] buffer = new byte[8192];
+
+        @Setup(Level.Trial)
+        public void connect(HttpEngineBenchmark benchmark) throws IOException {
+            socket = new Socket("localhost", benchmark.port);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = socket.getInputStream();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        /**
+         * Send one request and read its fixed-length response
+         */
+        int roundTrip() throws IOException {
+            out.write(REQUEST);
+            int count = 0;
+            int headEnd = -1;
+            int contentLength = 0;
+            while (headEnd < 0 || count < headEnd + contentLength) {
+                int n = in.read(buffer, count, buffer.length - count);
+                if (n < 0) {
+                    throw new IOException("Connection closed");
+                }
+                count += n;
+                if (headEnd < 0) {
+                    String head = new String(buffer, 0, count, StandardCharsets.ISO_8859_1);
+                    int blank = head.indexOf("\r\n\r\n");
+                    if (blank >= 0) {
+                        headEnd = blank + 4;
+                        int at = head.toLowerCase().indexOf("content-length:");
+                        contentLength = Integer.parseInt(head.substring(at + 15, head.indexOf('\r', at)).trim());
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    @Benchmark
+    public int getById(Client client) throws IOException {
+        return client.roundTrip();
+    }
+}
@@ -0,0 +1,111 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Route lookup cost as the number of controllers grows, for literal, path-variable and
+ * unmatched paths. The legacy benchmark repeats the previous router's per-request
+ * regex compile over every mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteMatchingBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int controllers;
+
+    private RouteTable table;
+    private List<Route> routes;
+    private String literalPath;
+    private String variablePath;
+    private String twoVariablePath;
+    private String missingPath;
+
+    @Setup
+    public void setup() throws Exception {
+        // Matching never touches the handler, any method will do
+        Method handler = Object.class.getMethod("hashCode");
+        RouteTable.Builder builder = RouteTable.builder();
+        routes = new ArrayList<>();
+
+        for (int i = 0; i < controllers; i++) {
+            String base = "/c" + i + "/users";
+            for (Route route : List.of(
+                    new Route("GET", base, handler, null),
+                    new Route("GET", base + "/{id}", handler, null),
+                    new Route("GET", base + "/{id}/orders/{orderId}", handler, null),
+                    new Route("POST", base, handler, null),
+                    new Route("POST", base + "/batch", handler, null))) {
+                builder.add(route);
+                routes.add(route);
+            }
+        }
+        table = builder.build();
+
+        // The last controller is the worst case for a linear scan
+        String base = "/c" + (controllers - 1) + "/users";
+        literalPath = base;
+        variablePath = base + "/12345";
+        twoVariablePath = base + "/12345/orders/678";
+        missingPath = base + "/12345/invoices";
+    }
+
+    @Benchmark
+    public RouteTable.Match literal() {
+        return table.match("GET", literalPath);
+    }
+
+    @Benchmark
+    public RouteTable.Match pathVariable() {
+        return table.match("GET", variablePath);
+    }
+
+    @Benchmark
+    public RouteTable.Match twoPathVariables() {
+        return table.match("GET", twoVariablePath);
+    }
+
+    @Benchmark
+    public RouteTable.Match notFound() {
+        return table.match("GET", missingPath);
+    }
+
+    /**
+     * The router's previous lookup: scan all mappings, compiling a regex for each
+     */
+    @Benchmark
+    public Route legacyRegexScan() {
+        for (Route route : routes) {
+            if (!route.httpMethod().equals("GET")) {
+                continue;
+            }
+            String pattern = route.pattern().replaceAll("\\{([^}]+)\\}", "([^/]+)");
+            Matcher matcher = Pattern.compile(pattern).matcher(twoVariablePath);
+            if (matcher.matches()) {
+                return route;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package http;
+
+import annotation.GetMapping;
+import annotation.PathVariable;
+import annotation.RequestMapping;
+import annotation.RestController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares controller invocation through the compiled MethodHandle chain with the
+ * reflective path the router used before (per-call parameter scan plus Method.invoke).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterInvocationBenchmark {
+
+    @RestController
+    @RequestMapping("/bench")
+    public static class BenchController {
+        @GetMapping("/{id}")
+        public long getById(@PathVariable("id") long id) {
+            return id * 31;
+        }
+    }
+
+    private final BenchController controller = new BenchController();
+    private final String path = "/12345";
+    private Method method;
+    private Route route;
+    private RouteTable.Match match;
+
+    @Setup
+    public void setup() throws Exception {
+        method = BenchController.class.getMethod("getById", long.class);
+        MethodHandle[] binders = { ArgumentBinders.pathVariable(0, long.class) };
+        RouteInvoker invoker = RouteInvoker.create(MethodHandles.lookup(), controller, method, binders);
+        route = new Route("GET", "/{id}", method, invoker);
+
+        RouteTable table = RouteTable.builder().add(route).build();
+        match = table.match("GET", path);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Exception {
+        return route.invoke(null, match);
+    }
+
+    @Benchmark
+    public Object reflectivePreBound() throws Exception {
+        return method.invoke(controller, Long.parseLong(match.variable(0)));
+    }
+
+    /**
+     * The router's previous invokeMethod/extractPathVariable logic, kept verbatim for comparison
+     */
+    @Benchmark
+    public Object reflectiveLegacy() throws Exception {
+        Parameter[] parameters = method.getParameters();
+        Object[] args = new Object[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter param = parameters[i];
+            if (param.isAnnotationPresent(PathVariable.class)) {
+                String methodPath = method.getAnnotation(GetMapping.class).value();
+                String pattern = methodPath.replaceAll("\\{([^}]+)\\}", "([^/]+)");
+                Matcher matcher = Pattern.compile(pattern).matcher(path);
+                if (matcher.matches()) {
+                    args[i] = Long.parseLong(matcher.group(1));
+                }
+            }
+        }
+
+        return method.invoke(controller, args);
+    }
+}
@@ -0,0 +1,108 @@
+package infrastructure.db;
+
+import domain.common.Page;
+import domain.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcUserRepository CRUD against an in-process H2 database, so the numbers reflect the
+ * repository, pool and statement cache rather than network latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    private DbConfig db;
+    private JdbcUserRepository repository;
+    private List<User> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        String url = "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        db = pooled ? new DbConfig(url, "sa", "", PoolConfig.defaults()) : new DbConfig(url, "sa", "");
+        try (Connection connection = db.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS users");
+            statement.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255))");
+        }
+
+        repository = new JdbcUserRepository(db);
+        List<User> seed = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            seed.add(new User(0, "User " + i, "user" + i + "@example.com"));
+        }
+        repository.saveAll(seed);
+
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new User(0, "Batch " + i, "batch" + i + "@example.com"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return repository.findBydId(randomId());
+    }
+
+    @Benchmark
+    public User insert() {
+        return repository.save(new User(0, "New user", "new@example.com"));
+    }
+
+    @Benchmark
+    public User update() {
+        long id = randomId();
+        return repository.save(new User(id, "Updated " + id, "updated" + id + "@example.com"));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<User> saveAllBatch() {
+        return repository.saveAll(batch);
+    }
+
+    @Benchmark
+    public Page<User> findPage() {
+        return repository.findPage(randomId(), 100);
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1);
+    }
+}
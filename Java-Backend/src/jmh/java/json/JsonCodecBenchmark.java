@@ -0,0 +1,149 @@
+package json;
+
+import domain.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-body parsing and response serialization with the JSON codec, against the
+ * string-based parseJsonToUser/toJson the router used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({"10000"})
+    public int listSize;
+
+    private byte[] userBody;
+    private User user;
+    private List<User> users;
+    private JsonWriter writer;
+
+    @Setup
+    public void setup() {
+        userBody = "{\"id\":0,\"name\":\"Ada Lovelace\",\"email\":\"ada@example.com\"}".getBytes(StandardCharsets.UTF_8);
+        user = new User(42, "Ada Lovelace", "ada@example.com");
+        users = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            users.add(new User(i + 1, "User " + i, "user" + i + "@example.com"));
+        }
+        writer = new JsonWriter(1 << 20);
+        // Build the codecs outside the measurement
+        Json.toBytes(users);
+    }
+
+    @Benchmark
+    public User parseUser() {
+        return Json.read(userBody, User.class);
+    }
+
+    @Benchmark
+    public User parseUserLegacy() {
+        return Legacy.parseJsonToUser(new String(userBody, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] writeUser() {
+        return Json.toBytes(user);
+    }
+
+    @Benchmark
+    public byte[] writeUserLegacy() {
+        return Legacy.toJson(user).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] writeList() {
+        return Json.toBytes(users);
+    }
+
+    /**
+     * List serialization into a reused writer, as a streaming response does
+     */
+    @Benchmark
+    public int writeListReusedWriter() {
+        writer.reset();
+        Json.write(writer, users);
+        return writer.size();
+    }
+
+    @Benchmark
+    public byte[] writeListLegacy() {
+        return Legacy.toJson(users).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The router's previous hand-written JSON handling, kept verbatim for comparison
+     */
+    static final class Legacy {
+        private Legacy() {
+        }
+
+        static User parseJsonToUser(String json) {
+            json = json.trim().replaceAll("^\\{|\\}$", "");
+            String name = "";
+            String email = "";
+            long id = 0;
+
+            String[] pairs = json.split(",");
+            for (String pair : pairs) {
+                String[] keyValue = pair.split(":", 2);
+                if (keyValue.length == 2) {
+                    String key = keyValue[0].trim().replaceAll("\"", "");
+                    String value = keyValue[1].trim().replaceAll("\"", "");
+
+                    switch (key) {
+                        case "id" -> id = value.isEmpty() ? 0 : Long.parseLong(value);
+                        case "name" -> name = value;
+                        case "email" -> email = value;
+                    }
+                }
+            }
+
+            return new User(id, name, email);
+        }
+
+        static String toJson(Object obj) {
+            if (obj instanceof List<?> list) {
+                StringBuilder sb = new StringBuilder("[");
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) sb.append(",");
+                    sb.append(toJson(list.get(i)));
+                }
+                sb.append("]");
+                return sb.toString();
+            } else if (obj instanceof User user) {
+                return String.format("{\"id\":%d,\"name\":\"%s\",\"email\":\"%s\"}",
+                    user.id(), user.name(), user.email());
+            } else if (obj instanceof Optional<?> opt) {
+                if (opt.isPresent()) {
+                    return toJson(opt.get());
+                } else {
+                    return "null";
+                }
+            } else {
+                return "\"" + obj.toString() + "\"";
+            }
+        }
+    }
+}
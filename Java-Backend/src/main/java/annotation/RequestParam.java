@@ -0,0 +1,17 @@
+package annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequestParam {
+    String value() default "";
+
+    boolean required() default false;
+
+    // Empty means no default: missing parameters are null (or rejected if required or primitive)
+    String defaultValue() default "";
+}
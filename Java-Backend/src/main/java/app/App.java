@@ -4,41 +4,179 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
+import controller.AsyncUserController;
 import controller.UserController;
+import infrastructure.cache.CacheConfig;
+import infrastructure.cache.CachingUserRepository;
+import infrastructure.cache.CoalescingUserRepository;
 import infrastructure.db.DbConfig;
+import infrastructure.db.DbExecutor;
+import infrastructure.db.ExecutorUserRepository;
+import infrastructure.db.GroupCommitConfig;
 import infrastructure.db.JdbcUserRepository;
+import infrastructure.db.PoolConfig;
+import infrastructure.db.PoolMetrics;
+import infrastructure.db.ResilienceConfig;
+import infrastructure.db.SlowQueryLog;
+import infrastructure.memory.InMemoryUserRepository;
+import ports.user.UserRepository;
+import application.user.AsyncUserService;
+import application.user.AsyncUserServiceImpl;
 import application.user.UserService;
 import application.user.UserServiceImpl;
+import http.AdmissionControlledExecutor;
 import http.HttpServeFactory;
+import http.LoadShedder;
+import http.RateLimits;
 import http.AnnotationBasedRouter;
-import com.sun.net.httpserver.HttpServer;
+import http.ResponseCompression;
+import http.Route;
+import http.ServerEngine;
+import http.StaticFileHandler;
+import http.StaticFilesConfig;
+import metrics.MetricsHandler;
+import metrics.MetricsRegistry;
 
 public class App {
     public static void main(String[] args) throws Exception {
         Properties cfg = loadProps();
         int port = Integer.parseInt(cfg.getProperty("server.port", "8080"));
 
-        DbConfig db = new DbConfig(
-                cfg.getProperty("db.url"),
-                cfg.getProperty("db.user"),
-                cfg.getProperty("db.password")
-        );
-
-        var userRepo = new JdbcUserRepository(db);
-        UserService userService = new UserServiceImpl(userRepo);
-        UserController userController = new UserController(userService);
+        // storage.type=memory runs the whole stack without a database (and without a cache in front)
+        UserRepository users;
+        DbConfig db = null;
+        if ("memory".equalsIgnoreCase(cfg.getProperty("storage.type", "jdbc"))) {
+            users = new InMemoryUserRepository();
+        } else {
+            db = createDbConfig(cfg);
+            JdbcUserRepository userRepo = createJdbcUserRepository(db, cfg);
+            if (Boolean.parseBoolean(cfg.getProperty("cache.users.enabled", "false"))) {
+                CachingUserRepository cached = new CachingUserRepository(userRepo, CacheConfig.fromProperties(cfg, "cache.users"));
+                registerCacheMetrics(cached);
+                users = cached;
+            } else {
+                // Without the cache, identical concurrent lookups by id still share one query
+                CoalescingUserRepository coalescing = new CoalescingUserRepository(userRepo);
+                MetricsRegistry.global().counterFunction("db_coalesced_reads_total",
+                        "Lookups by id served by a concurrent identical query", coalescing::coalescedCount, "table", "users");
+                users = coalescing;
+            }
+        }
+        // async.enabled hands every repository call to a bounded DB executor and answers when it
+        // completes, so HTTP workers and DB threads are sized independently
+        Object userController;
+        DbExecutor dbExecutor = null;
+        if (Boolean.parseBoolean(cfg.getProperty("async.enabled", "false"))) {
+            dbExecutor = DbExecutor.fromProperties(cfg);
+            registerDbExecutorMetrics(dbExecutor);
+            AsyncUserService userService = new AsyncUserServiceImpl(new ExecutorUserRepository(users, dbExecutor));
+            userController = new AsyncUserController(userService);
+        } else {
+            UserService userService = new UserServiceImpl(users);
+            userController = new UserController(userService);
+        }
 
         // Create and start HTTP server with annotation-based routing
-        HttpServer server = HttpServeFactory.create(port);
-        server.createContext("/api/users", new AnnotationBasedRouter(userController));
+        ServerEngine server = HttpServeFactory.createEngine(port, cfg);
+        // One front controller for every @RestController; it logs the merged route table
+        AnnotationBasedRouter router = new AnnotationBasedRouter(userController);
+        router.setCompression(ResponseCompression.fromProperties(cfg));
+        // Only safe when no other process writes the users table
+        if (Boolean.parseBoolean(cfg.getProperty("http.etag.repositoryVersion", "false"))) {
+            router.setVersionSource(users::version);
+        }
+        router.setRateLimits(RateLimits.fromProperties(cfg));
+        // Async handlers' responses are written by HTTP workers, not the DB threads completing them
+        router.setResponseExecutor(server.executor());
+        LoadShedder shedder = LoadShedder.fromProperties(cfg);
+        if (shedder != null) {
+            if (server.executor() instanceof AdmissionControlledExecutor admission) {
+                shedder.addSignal("executor_queue", admission::queueDelayNanos);
+            }
+            if (db != null) {
+                shedder.addSignal("db_pool_wait", db::poolWaitNanos);
+            }
+            if (dbExecutor != null) {
+                shedder.addSignal("db_executor_queue", dbExecutor::queueDelayNanos);
+            }
+            router.setLoadShedder(shedder);
+        }
+        server.createContext("/", router);
+        server.createContext("/metrics", new MetricsHandler(MetricsRegistry.global()));
+        StaticFilesConfig staticFiles = StaticFilesConfig.fromProperties(cfg);
+        if (staticFiles != null) {
+            server.createContext(staticFiles.urlPath(), new StaticFileHandler(staticFiles));
+        }
 
         server.start();
         System.out.println("Server started on port " + port);
         System.out.println("API endpoints available:");
-        System.out.println("  GET    /api/users       - Get all users");
-        System.out.println("  GET    /api/users/{id}  - Get user by ID");
-        System.out.println("  POST   /api/users       - Create user");
-        System.out.println("  POST   /api/users/create - Create user with validation");
+        for (Route route : router.routes()) {
+            System.out.printf("  %-6s %s%n", route.httpMethod(), route.pattern());
+        }
+        System.out.println("  GET    /metrics");
+        if (staticFiles != null) {
+            System.out.println("  GET    " + staticFiles.urlPath() + "/** -> " + staticFiles.directory().toAbsolutePath());
+        }
+    }
+
+    private static DbConfig createDbConfig(Properties cfg) {
+        DbConfig db = Boolean.parseBoolean(cfg.getProperty("db.pool.enabled", "true"))
+                ? new DbConfig(cfg.getProperty("db.url"), cfg.getProperty("db.user"), cfg.getProperty("db.password"),
+                        PoolConfig.fromProperties(cfg))
+                : new DbConfig(cfg.getProperty("db.url"), cfg.getProperty("db.user"), cfg.getProperty("db.password"));
+
+        registerPoolMetrics(db);
+        return db;
+    }
+
+    private static JdbcUserRepository createJdbcUserRepository(DbConfig db, Properties cfg) {
+        JdbcUserRepository userRepo = new JdbcUserRepository(db);
+        userRepo.setBatchSize(Integer.parseInt(cfg.getProperty("db.batchSize", "500")));
+        userRepo.setFetchSize(Integer.parseInt(cfg.getProperty("db.fetchSize", "500")));
+        userRepo.setSlowQueryLog(SlowQueryLog.fromProperties(cfg));
+        if (Boolean.parseBoolean(cfg.getProperty("db.resilience.enabled", "false"))) {
+            userRepo.setResilience(ResilienceConfig.fromProperties(cfg));
+        }
+        if (Boolean.parseBoolean(cfg.getProperty("db.groupCommit.enabled", "false"))) {
+            userRepo.setGroupCommit(GroupCommitConfig.fromProperties(cfg));
+        }
+        return userRepo;
+    }
+
+    private static void registerPoolMetrics(DbConfig db) {
+        if (db.poolMetrics().isEmpty()) {
+            return;
+        }
+        MetricsRegistry registry = MetricsRegistry.global();
+        registry.gauge("db_pool_connections", "Pooled connections by state",
+                () -> db.poolMetrics().map(PoolMetrics::active).orElse(0), "state", "active");
+        registry.gauge("db_pool_connections", "Pooled connections by state",
+                () -> db.poolMetrics().map(PoolMetrics::idle).orElse(0), "state", "idle");
+        registry.gauge("db_pool_waiters", "Threads waiting for a connection",
+                () -> db.poolMetrics().map(PoolMetrics::waiters).orElse(0));
+        registry.counterFunction("db_pool_timeouts_total", "Connection requests that timed out",
+                () -> db.poolMetrics().map(PoolMetrics::timeouts).orElse(0L));
+        registry.counterFunction("db_statement_cache_hits_total", "Prepared statements reused from the cache",
+                () -> db.poolMetrics().map(PoolMetrics::statementCacheHits).orElse(0L));
+        registry.counterFunction("db_statement_cache_misses_total", "Prepared statements created",
+                () -> db.poolMetrics().map(PoolMetrics::statementCacheMisses).orElse(0L));
+    }
+
+    private static void registerDbExecutorMetrics(DbExecutor executor) {
+        MetricsRegistry registry = MetricsRegistry.global();
+        registry.gauge("db_executor_queue_depth", "Repository calls waiting for a DB thread", executor::queueDepth);
+        registry.gauge("db_executor_active_threads", "DB threads running a repository call", executor::activeCount);
+        registry.counterFunction("db_executor_rejected_total", "Repository calls refused because the DB executor queue was full",
+                executor::rejectedCount);
+    }
+
+    private static void registerCacheMetrics(CachingUserRepository cached) {
+        MetricsRegistry registry = MetricsRegistry.global();
+        registry.counterFunction("cache_hits_total", "Entity cache hits", () -> cached.cacheMetrics().hits(), "cache", "users");
+        registry.counterFunction("cache_misses_total", "Entity cache misses", () -> cached.cacheMetrics().misses(), "cache", "users");
+        registry.counterFunction("cache_evictions_total", "Entity cache evictions", () -> cached.cacheMetrics().evictions(), "cache", "users");
+        registry.gauge("cache_size", "Entity cache entries", () -> cached.cacheMetrics().size(), "cache", "users");
     }
 
     private static Properties loadProps() throws IOException {
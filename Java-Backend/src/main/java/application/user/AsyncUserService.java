@@ -0,0 +1,22 @@
+package application.user;
+
+import domain.common.Page;
+import domain.user.User;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+public interface AsyncUserService {
+    CompletableFuture<List<User>> getAllUsers();
+    CompletableFuture<Stream<User>> streamAllUsers();
+    CompletableFuture<Page<User>> getUsersPage(long after, int limit);
+    CompletableFuture<Page<Map<String, Object>>> getUsersPage(long after, int limit, List<String> fields);
+    CompletableFuture<Optional<User>> getUserById(long id);
+    CompletableFuture<User> createUser(User user);
+    CompletableFuture<List<User>> createUsers(List<User> users);
+    CompletableFuture<User> updateUser(long id, User user);
+    CompletableFuture<Void> patchUser(long id, Map<String, Object> fields);
+    CompletableFuture<Void> deleteUser(long id);
+}
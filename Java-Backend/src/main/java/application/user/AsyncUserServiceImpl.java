@@ -0,0 +1,78 @@
+package application.user;
+
+import domain.common.Page;
+import domain.user.User;
+import ports.user.AsyncUserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+public class AsyncUserServiceImpl implements AsyncUserService {
+    private final AsyncUserRepository userRepository;
+
+    public AsyncUserServiceImpl(AsyncUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getAllUsers() {
+        return userRepository.findAll();
+    }
+
+    @Override
+    public CompletableFuture<Stream<User>> streamAllUsers() {
+        return userRepository.streamAll();
+    }
+
+    @Override
+    public CompletableFuture<Page<User>> getUsersPage(long after, int limit) {
+        return userRepository.findPage(after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Page<Map<String, Object>>> getUsersPage(long after, int limit, List<String> fields) {
+        return userRepository.findPage(after, limit, fields);
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> getUserById(long id) {
+        return userRepository.findBydId(id);
+    }
+
+    @Override
+    public CompletableFuture<User> createUser(User user) {
+        return userRepository.save(user);
+    }
+
+    @Override
+    public CompletableFuture<List<User>> createUsers(List<User> users) {
+        return userRepository.saveAll(users);
+    }
+
+    @Override
+    public CompletableFuture<User> updateUser(long id, User user) {
+        if (id == 0) {
+            return CompletableFuture.failedFuture(new NoSuchElementException("User not found: " + id));
+        }
+        return userRepository.save(new User(id, user.name(), user.email()));
+    }
+
+    @Override
+    public CompletableFuture<Void> patchUser(long id, Map<String, Object> fields) {
+        return userRepository.updateFields(id, fields).thenAccept(found -> requireFound(found, id));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteUser(long id) {
+        return userRepository.deleteById(id).thenAccept(found -> requireFound(found, id));
+    }
+
+    private static void requireFound(boolean found, long id) {
+        if (!found) {
+            throw new NoSuchElementException("User not found: " + id);
+        }
+    }
+}
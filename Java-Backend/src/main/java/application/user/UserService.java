@@ -1,11 +1,21 @@
 package application.user;
 
+import domain.common.Page;
 import domain.user.User;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserService {
     List<User> getAllUsers();
+    Stream<User> streamAllUsers();
+    Page<User> getUsersPage(long after, int limit);
+    Page<Map<String, Object>> getUsersPage(long after, int limit, List<String> fields);
     Optional<User> getUserById(long id);
     User createUser(User user);
+    List<User> createUsers(List<User> users);
+    User updateUser(long id, User user);
+    void patchUser(long id, Map<String, Object> fields);
+    void deleteUser(long id);
 } 
@@ -1,9 +1,13 @@
 package application.user;
 
+import domain.common.Page;
 import domain.user.User;
 import ports.user.UserRepository;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
@@ -17,6 +21,21 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
+    @Override
+    public Stream<User> streamAllUsers() {
+        return userRepository.streamAll();
+    }
+
+    @Override
+    public Page<User> getUsersPage(long after, int limit) {
+        return userRepository.findPage(after, limit);
+    }
+
+    @Override
+    public Page<Map<String, Object>> getUsersPage(long after, int limit, List<String> fields) {
+        return userRepository.findPage(after, limit, fields);
+    }
+
     @Override
     public Optional<User> getUserById(long id) {
         return userRepository.findBydId(id);
@@ -26,4 +45,31 @@ public class UserServiceImpl implements UserService {
     public User createUser(User user) {
         return userRepository.save(user);
     }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        return userRepository.saveAll(users);
+    }
+
+    @Override
+    public User updateUser(long id, User user) {
+        if (id == 0) {
+            throw new NoSuchElementException("User not found: " + id);
+        }
+        return userRepository.save(new User(id, user.name(), user.email()));
+    }
+
+    @Override
+    public void patchUser(long id, Map<String, Object> fields) {
+        if (!userRepository.updateFields(id, fields)) {
+            throw new NoSuchElementException("User not found: " + id);
+        }
+    }
+
+    @Override
+    public void deleteUser(long id) {
+        if (!userRepository.deleteById(id)) {
+            throw new NoSuchElementException("User not found: " + id);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package controller;
+
+import annotation.*;
+import application.user.AsyncUserService;
+import domain.user.User;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Same API as {@link UserController}, but every handler returns a future and the router writes
+ * the response when it completes, so the HTTP thread is free during the database call.
+ * Validation still runs on the HTTP thread, before any database work is queued.
+ */
+@RestController
+@RequestMapping("/api/users")
+public class AsyncUserController {
+    private final AsyncUserService userService;
+
+    public AsyncUserController(AsyncUserService userService) {
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public CompletableFuture<?> getAllUsers(@RequestParam("after") Long after,
+                                            @RequestParam("limit") Integer limit,
+                                            @RequestParam("fields") String fields) {
+        if (after == null && limit == null && fields == null) {
+            return userService.streamAllUsers();
+        }
+
+        int pageSize = UserValidation.pageSize(limit);
+        long from = after != null ? after : 0;
+        List<String> fieldList = UserValidation.fieldList(fields);
+        if (fieldList == null) {
+            return userService.getUsersPage(from, pageSize);
+        }
+        return userService.getUsersPage(from, pageSize, fieldList);
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<Optional<User>> getUserById(@PathVariable("id") long id) {
+        return userService.getUserById(id);
+    }
+
+    @PostMapping
+    public CompletableFuture<User> createUser(@RequestBody User user) {
+        UserValidation.validate(user.name(), user.email());
+        return userService.createUser(user);
+    }
+
+    @PostMapping("/create")
+    public CompletableFuture<User> createUserWithValidation(@RequestBody UserController.CreateUserRequest request) {
+        UserValidation.validate(request.name(), request.email());
+        return userService.createUser(new User(0, request.name(), request.email()));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<List<User>> createUsers(@RequestBody List<User> users) {
+        UserValidation.validateBatch(users);
+        return userService.createUsers(users);
+    }
+
+    @PutMapping("/{id}")
+    public CompletableFuture<User> updateUser(@PathVariable("id") long id, @RequestBody User user) {
+        UserValidation.validate(user.name(), user.email());
+        return userService.updateUser(id, user);
+    }
+
+    @PatchMapping("/{id}")
+    public CompletableFuture<Void> patchUser(@PathVariable("id") long id, @RequestBody Map<String, Object> fields) {
+        UserValidation.validatePatch(fields);
+        return userService.patchUser(id, fields);
+    }
+
+    @DeleteMapping("/{id}")
+    public CompletableFuture<Void> deleteUser(@PathVariable("id") long id) {
+        return userService.deleteUser(id);
+    }
+}
@@ -4,6 +4,7 @@ import annotation.*;
 import application.user.UserService;
 import domain.user.User;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -15,9 +16,23 @@ public class UserController {
         this.userService = userService;
     }
 
+    // Without paging parameters all users are streamed as a chunked JSON array, so memory use
+    // does not grow with the table; with after/limit/fields a page with a next cursor is returned
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public Object getAllUsers(@RequestParam("after") Long after,
+                              @RequestParam("limit") Integer limit,
+                              @RequestParam("fields") String fields) {
+        if (after == null && limit == null && fields == null) {
+            return userService.streamAllUsers();
+        }
+
+        int pageSize = UserValidation.pageSize(limit);
+        long from = after != null ? after : 0;
+        List<String> fieldList = UserValidation.fieldList(fields);
+        if (fieldList == null) {
+            return userService.getUsersPage(from, pageSize);
+        }
+        return userService.getUsersPage(from, pageSize, fieldList);
     }
 
     @GetMapping("/{id}")
@@ -27,31 +42,41 @@ public class UserController {
 
     @PostMapping
     public User createUser(@RequestBody User user) {
-        // Validation
-        if (user.name() == null || user.name().trim().isEmpty()) {
-            throw new IllegalArgumentException("Name is required");
-        }
-        if (user.email() == null || !user.email().contains("@")) {
-            throw new IllegalArgumentException("Valid email is required");
-        }
-        
+        UserValidation.validate(user.name(), user.email());
         return userService.createUser(user);
     }
 
     @PostMapping("/create")
     public User createUserWithValidation(@RequestBody CreateUserRequest request) {
-        // Validation
-        if (request.name() == null || request.name().trim().isEmpty()) {
-            throw new IllegalArgumentException("Name is required");
-        }
-        if (request.email() == null || !request.email().contains("@")) {
-            throw new IllegalArgumentException("Valid email is required");
-        }
-        
+        UserValidation.validate(request.name(), request.email());
         User user = new User(0, request.name(), request.email());
         return userService.createUser(user);
     }
 
+    @PostMapping("/batch")
+    public List<User> createUsers(@RequestBody List<User> users) {
+        UserValidation.validateBatch(users);
+        return userService.createUsers(users);
+    }
+
+    @PutMapping("/{id}")
+    public User updateUser(@PathVariable("id") long id, @RequestBody User user) {
+        UserValidation.validate(user.name(), user.email());
+        return userService.updateUser(id, user);
+    }
+
+    // Only the fields present in the body are written, so there is no need to read the user first
+    @PatchMapping("/{id}")
+    public void patchUser(@PathVariable("id") long id, @RequestBody Map<String, Object> fields) {
+        UserValidation.validatePatch(fields);
+        userService.patchUser(id, fields);
+    }
+
+    @DeleteMapping("/{id}")
+    public void deleteUser(@PathVariable("id") long id) {
+        userService.deleteUser(id);
+    }
+
     // DTO for create user request
     public record CreateUserRequest(String name, String email) {}
 }
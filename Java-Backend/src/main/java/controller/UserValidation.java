@@ -0,0 +1,83 @@
+package controller;
+
+import domain.user.User;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request checks shared by the blocking and async user controllers
+ */
+final class UserValidation {
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private UserValidation() {
+    }
+
+    static void validate(String name, String email) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (email == null || !email.contains("@")) {
+            throw new IllegalArgumentException("Valid email is required");
+        }
+    }
+
+    static void validateBatch(List<User> users) {
+        if (users == null || users.isEmpty()) {
+            throw new IllegalArgumentException("At least one user is required");
+        }
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null || user.name() == null || user.name().trim().isEmpty()) {
+                throw new IllegalArgumentException("Name is required (item " + i + ")");
+            }
+            if (user.email() == null || !user.email().contains("@")) {
+                throw new IllegalArgumentException("Valid email is required (item " + i + ")");
+            }
+        }
+    }
+
+    static void validatePatch(Map<String, Object> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            switch (field.getKey()) {
+                case "name" -> {
+                    if (!(field.getValue() instanceof String name) || name.trim().isEmpty()) {
+                        throw new IllegalArgumentException("Name is required");
+                    }
+                }
+                case "email" -> {
+                    if (!(field.getValue() instanceof String email) || !email.contains("@")) {
+                        throw new IllegalArgumentException("Valid email is required");
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown field '" + field.getKey() + "'");
+            }
+        }
+    }
+
+    static int pageSize(Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    /**
+     * Comma-separated field list, or null when no projection was asked for
+     */
+    static List<String> fieldList(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,10 @@
+package domain.common;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * nextCursor is the key to pass as "after" for the following page, or null on the last page.
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+}
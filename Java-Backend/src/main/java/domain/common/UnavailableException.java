@@ -0,0 +1,18 @@
+package domain.common;
+
+/**
+ * A backing service is temporarily refusing work (circuit open, too many concurrent calls).
+ * The request was not attempted, so it is safe to retry after the suggested delay.
+ */
+public class UnavailableException extends RuntimeException {
+    private final long retryAfterMillis;
+
+    public UnavailableException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long retryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
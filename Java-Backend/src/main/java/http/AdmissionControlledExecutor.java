@@ -0,0 +1,159 @@
+package http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import metrics.DelayWindow;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor wrapper that caps the number of in-flight exchanges.
+ * Over the limit the exchange is not queued for a worker: it runs in "rejected" mode on a
+ * small pool of its own and the filter from {@link #rejectionFilter()} answers 503 right away,
+ * so a slow database cannot build an unbounded backlog of waiting requests. Rejections never
+ * run on the caller, since that is the JDK server's dispatcher (which reads the request head
+ * of a rejected exchange with blocking I/O) or the NIO engine's selector thread. Their queue is
+ * bounded too: once it is full, execute throws RejectedExecutionException and both engines
+ * close the connection without reading the request.
+ */
+public class AdmissionControlledExecutor implements Executor {
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+    private static final byte[] OVERLOADED = "{\"error\":\"Server overloaded, retry later\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final int REJECTION_THREADS = 2;
+    private static final int REJECTION_QUEUE = 32;
+
+    private final ExecutorService delegate;
+    // Rejected exchanges only read a request head and write a fixed 503, so a couple of threads keep
+    // up; slow clients can still stall them, hence the bounded queue
+    private final ExecutorService rejections = new ThreadPoolExecutor(REJECTION_THREADS, REJECTION_THREADS,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(REJECTION_QUEUE),
+            HttpServeFactory.workerThreads("http-reject-"));
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final DelayWindow queueDelay = new DelayWindow(100, TimeUnit.MILLISECONDS);
+
+    public AdmissionControlledExecutor(ExecutorService delegate, int maxInFlight) {
+        this.delegate = delegate;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the exchange is over the limit and the queue of
+     * rejections is full too; the caller should close the connection
+     */
+    @Override
+    public void execute(Runnable exchange) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            reject(exchange);
+            return;
+        }
+
+        long queued = System.nanoTime();
+        try {
+            delegate.execute(() -> {
+                queueDelay.record(System.nanoTime() - queued);
+                try {
+                    exchange.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Bounded worker queue is full
+            inFlight.decrementAndGet();
+            reject(exchange);
+        }
+    }
+
+    /**
+     * Filter that short-circuits exchanges marked as rejected; install it on every context
+     */
+    public Filter rejectionFilter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (REJECTED.get() == null) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+                try {
+                    exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+                    exchange.getResponseHeaders().add("Retry-After", "1");
+                    exchange.sendResponseHeaders(503, OVERLOADED.length);
+                    exchange.getResponseBody().write(OVERLOADED);
+                } finally {
+                    exchange.close();
+                }
+            }
+
+            @Override
+            public String description() {
+                return "Rejects requests over the in-flight limit with 503";
+            }
+        };
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Smallest time an exchange waited for a worker thread over the last 100ms; see {@link DelayWindow}
+     */
+    public long queueDelayNanos() {
+        return queueDelay.nanos();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Exchanges waiting for a worker thread, or 0 when the executor does not queue
+     */
+    public int queueDepth() {
+        return delegate instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    /**
+     * The worker pool without admission control, for more work on an exchange already admitted
+     */
+    Executor workers() {
+        return delegate;
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+        rejections.shutdown();
+    }
+
+    private void reject(Runnable exchange) {
+        rejected.increment();
+        // Throws when full (or shutting down), so the engine drops the connection unread
+        rejections.execute(() -> {
+            REJECTED.set(Boolean.TRUE);
+            try {
+                exchange.run();
+            } finally {
+                REJECTED.remove();
+            }
+        });
+    }
+}
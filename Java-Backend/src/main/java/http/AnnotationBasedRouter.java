@@ -3,245 +3,610 @@ package http;
 import annotation.*;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import domain.user.User;
+import domain.common.UnavailableException;
+import json.Json;
+import json.JsonWriter;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.nio.charset.StandardCharsets;
+import java.lang.reflect.Type;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 public class AnnotationBasedRouter implements HttpHandler {
-    private final Object controller;
-    private final String basePath;
+    private static final Logger log = LoggerFactory.getLogger(AnnotationBasedRouter.class);
+    private static final MethodHandle READ_BODY;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final OutputStream ABORTED_BODY = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("Response aborted");
+        }
+
+        @Override
+        public void close() throws IOException {
+            throw new IOException("Response aborted");
+        }
+    };
 
-    public AnnotationBasedRouter(Object controller) {
-        this.controller = controller;
-        
-        // Get base path from @RequestMapping annotation
-        RequestMapping requestMapping = controller.getClass().getAnnotation(RequestMapping.class);
-        this.basePath = (requestMapping != null) ? requestMapping.value() : "";
+    static {
+        try {
+            READ_BODY = MethodHandles.lookup().findVirtual(AnnotationBasedRouter.class, "parseRequestBody",
+                    MethodType.methodType(Object.class, HttpExchange.class, Type.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final RouteTable routes;
+    private final Map<Route, RouteMetrics> routeMetrics = new IdentityHashMap<>();
+    private final RouteMetrics unmatchedMetrics;
+    private volatile ResponseCompression compression = ResponseCompression.defaults();
+    private volatile LongSupplier versionSource;
+    private volatile Map<Route, RateLimits.RouteLimiter> rateLimiters = Map.of();
+    private volatile LoadShedder loadShedder;
+    private volatile Executor responseExecutor;
+
+    /**
+     * Front controller for all the given @RestController beans. Their routes are prefixed with
+     * the class-level @RequestMapping and merged into one table, so a request costs one lookup
+     * however many controllers there are. Mount it at "/" (or any prefix of every mapping);
+     * two controllers mapping the same method and path fail here rather than at request time.
+     */
+    public AnnotationBasedRouter(Object... controllers) {
+        // Resolve routes and argument binders once instead of per request
+        RouteTable.Builder builder = RouteTable.builder();
+        for (Object controller : controllers) {
+            addRoutes(builder, controller);
+        }
+        this.routes = builder.build();
+        for (Route route : routes.routes()) {
+            routeMetrics.put(route, new RouteMetrics(route.httpMethod(), route.pattern()));
+        }
+        this.unmatchedMetrics = new RouteMetrics("ANY", "unmatched");
+
+        log.info("Mapped {} routes from {} controllers", routes.routes().size(), controllers.length);
+        for (Route route : routes.routes()) {
+            log.info("  {}", route);
+        }
+    }
+
+    /**
+     * All mapped routes with their full paths, in registration order
+     */
+    public List<Route> routes() {
+        return routes.routes();
+    }
+
+    /**
+     * Compression settings for responses; null sends every body uncompressed
+     */
+    public void setCompression(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Version of the data behind the controllers' GET routes, e.g. a repository write counter.
+     * When set, GET responses are tagged with it and a matching If-None-Match is answered with
+     * 304 before the handler runs. It must change whenever any response could change, so only
+     * use it when every write goes through this process. A negative value disables it for the
+     * request, falling back to ETags hashed from the response body.
+     */
+    public void setVersionSource(LongSupplier versionSource) {
+        this.versionSource = versionSource;
+    }
+
+    /**
+     * Throttle routes with token buckets; over the limit a request gets 429 before its handler runs
+     * @throws IllegalArgumentException if a limit names a route this router does not have
+     */
+    public void setRateLimits(RateLimits limits) {
+        Map<Route, RateLimits.RouteLimiter> limiters = new IdentityHashMap<>();
+        for (Map.Entry<String, RateLimits.Limit> entry : limits.limits().entrySet()) {
+            Route route = routes.routes().stream()
+                    .filter(candidate -> (candidate.httpMethod() + " " + candidate.pattern()).equals(entry.getKey()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Rate limit for unknown route " + entry.getKey()));
+            limiters.put(route, new RateLimits.RouteLimiter(entry.getValue()));
+            log.info("Rate limit on {}: {}", entry.getKey(), entry.getValue());
+        }
+        this.rateLimiters = limiters;
+    }
+
+    /**
+     * Answer 503 before the handler runs while the shedder reports overload; null disables it
+     */
+    public void setLoadShedder(LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    /**
+     * Threads that write the responses of handlers returning futures, normally the server's
+     * {@link ServerEngine#executor()}, so the thread completing the future (e.g. a DbExecutor
+     * thread) is not held up serializing and sending. The request was admitted when it arrived,
+     * so an AdmissionControlledExecutor's worker pool is used directly. If the workers refuse the
+     * task the completing thread writes the response; without an executor it always does.
+     */
+    public void setResponseExecutor(Executor executor) {
+        Executor workers = executor instanceof AdmissionControlledExecutor admission ? admission.workers() : executor;
+        this.responseExecutor = workers == null ? null : task -> {
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        };
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        RouteMetrics metrics = unmatchedMetrics;
+        boolean async = false;
         try {
             String method = exchange.getRequestMethod();
             String path = exchange.getRequestURI().getPath();
-            
-            // Remove base path
-            if (path.startsWith(basePath)) {
-                path = path.substring(basePath.length());
-            }
-            
+
             // Set response headers
             exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
             exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-            exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, PATCH, DELETE, OPTIONS");
             exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
             
             // Handle OPTIONS request (CORS preflight)
             if ("OPTIONS".equals(method)) {
-                exchange.sendResponseHeaders(200, 0);
+                exchange.sendResponseHeaders(200, -1);
                 return;
             }
 
-            // Find matching method
-            Method matchedMethod = findMatchingMethod(method, path);
-            if (matchedMethod == null) {
+            // Find matching route
+            RouteTable.Match match = routes.match(method, path);
+            if (match == null) {
                 sendErrorResponse(exchange, 404, "Not Found");
                 return;
             }
 
+            Route route = match.route();
+            metrics = routeMetrics.get(route);
+            if (rejectedEarly(exchange, route)) {
+                return;
+            }
+
+            // Read the version before the handler so a write racing with it moves the tag on
+            String versionTag = "GET".equals(method) ? versionTag() : null;
+            if (versionTag != null && notModified(exchange, withEncoding(versionTag, negotiate(exchange, -1)))) {
+                return;
+            }
+
             // Invoke method and handle response
-            Object result = invokeMethod(matchedMethod, exchange, path);
-            sendSuccessResponse(exchange, result, "POST".equals(method) ? 201 : 200);
+            Object result = route.invoke(exchange, match);
+            if (result instanceof CompletionStage<?> pending) {
+                completeLater(exchange, route, pending, versionTag, metrics, start);
+                async = true;
+                return;
+            }
+            respond(exchange, route, result, versionTag);
 
-        } catch (IllegalArgumentException e) {
-            sendErrorResponse(exchange, 400, e.getMessage());
         } catch (Exception e) {
-            sendErrorResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
+            handleFailure(exchange, e);
+        } finally {
+            if (!async) {
+                metrics.record(start, exchange.getResponseCode());
+                exchange.close();
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, Route route, Object result, String versionTag) throws IOException {
+        if (route.noContent()) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
         }
+        sendSuccessResponse(exchange, result, "POST".equals(exchange.getRequestMethod()) ? 201 : 200, versionTag);
     }
 
-    private Method findMatchingMethod(String httpMethod, String path) {
-        for (Method method : controller.getClass().getDeclaredMethods()) {
-            if (matchesHttpMethod(method, httpMethod) && matchesPath(method, path)) {
-                return method;
+    /**
+     * Send the response when a handler's future completes, on the response executor (see
+     * {@link #setResponseExecutor(Executor)}), so the HTTP worker is released as soon as the
+     * handler returns. Latency is recorded at completion and so still covers the whole request.
+     */
+    private void completeLater(HttpExchange exchange, Route route, CompletionStage<?> pending, String versionTag,
+                               RouteMetrics metrics, long start) {
+        if (exchange instanceof NioHttpExchange nio) {
+            nio.detach();
+        }
+        BiConsumer<Object, Throwable> complete = (result, failure) -> {
+            try {
+                if (failure == null) {
+                    respond(exchange, route, result, versionTag);
+                } else {
+                    handleFailure(exchange, unwrap(failure));
+                }
+            } catch (Exception e) {
+                // Headers may be out already; closing the exchange is all that is left to do
+                log.warn("Completing {} {} failed", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            } finally {
+                metrics.record(start, exchange.getResponseCode());
+                exchange.close();
             }
+        };
+        Executor executor = responseExecutor;
+        if (executor != null) {
+            pending.whenCompleteAsync(complete, executor);
+        } else {
+            pending.whenComplete(complete);
         }
-        return null;
     }
 
-    private boolean matchesHttpMethod(Method method, String httpMethod) {
-        return (method.isAnnotationPresent(GetMapping.class) && "GET".equals(httpMethod)) ||
-               (method.isAnnotationPresent(PostMapping.class) && "POST".equals(httpMethod));
+    /**
+     * The exception a future failed with, without the CompletionException wrapping added by
+     * dependent stages
+     */
+    private static Exception unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception e ? e : new RuntimeException(cause);
     }
 
-    private boolean matchesPath(Method method, String path) {
-        String methodPath = getMethodPath(method);
-        
-        // Exact match for simple paths
-        if (methodPath.equals(path) || (methodPath.isEmpty() && path.equals("/"))) {
+    /**
+     * Apply the route's rate limit, then load shedding, answering 429 or 503 if either says no
+     */
+    private boolean rejectedEarly(HttpExchange exchange, Route route) throws IOException {
+        RateLimits.RouteLimiter limiter = rateLimiters.get(route);
+        if (limiter != null) {
+            long waitNanos = limiter.tryAcquire(exchange.getRemoteAddress());
+            if (waitNanos > 0) {
+                countShed("rate_limit");
+                // Retry-After is in whole seconds, rounded up
+                long seconds = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+                sendErrorResponse(exchange, 429, "Too Many Requests");
+                return true;
+            }
+        }
+
+        LoadShedder shedder = loadShedder;
+        String overloaded = shedder != null ? shedder.shed() : null;
+        if (overloaded != null) {
+            countShed(overloaded);
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendErrorResponse(exchange, 503, "Server overloaded, retry later");
             return true;
         }
-        
-        // Pattern match for path variables
-        String pattern = methodPath.replaceAll("\\{[^}]+\\}", "([^/]+)");
-        return path.matches(pattern);
+        return false;
+    }
+
+    private static void countShed(String reason) {
+        MetricsRegistry.global().counter("http_server_shed_total",
+                "Requests rejected before their handler by rate limits or load shedding", "reason", reason).increment();
+    }
+
+    private void handleFailure(HttpExchange exchange, Exception e) throws IOException {
+        if (e instanceof IllegalArgumentException) {
+            sendErrorResponse(exchange, 400, e.getMessage());
+        } else if (e instanceof NoSuchElementException) {
+            sendErrorResponse(exchange, 404, e.getMessage());
+        } else if (e instanceof UnavailableException unavailable) {
+            long seconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(unavailable.retryAfterMillis() + 999));
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+            sendErrorResponse(exchange, 503, e.getMessage());
+        } else {
+            log.error("{} {} failed", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendErrorResponse(exchange, 500, "Internal Server Error: " + e.getMessage());
+        }
     }
 
-    private String getMethodPath(Method method) {
-        if (method.isAnnotationPresent(GetMapping.class)) {
-            return method.getAnnotation(GetMapping.class).value();
+    /**
+     * Add a controller's mapped methods, prefixed with its @RequestMapping path
+     */
+    private void addRoutes(RouteTable.Builder builder, Object controller) {
+        Class<?> type = controller.getClass();
+        if (!type.isAnnotationPresent(RestController.class)) {
+            throw new IllegalArgumentException(type.getName() + " is not annotated with @RestController");
         }
-        if (method.isAnnotationPresent(PostMapping.class)) {
-            return method.getAnnotation(PostMapping.class).value();
+        RequestMapping requestMapping = type.getAnnotation(RequestMapping.class);
+        String basePath = (requestMapping != null) ? requestMapping.value() : "";
+
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(GetMapping.class)) {
+                String pattern = basePath + method.getAnnotation(GetMapping.class).value();
+                builder.add(createRoute(controller, "GET", pattern, method));
+            }
+            if (method.isAnnotationPresent(PostMapping.class)) {
+                String pattern = basePath + method.getAnnotation(PostMapping.class).value();
+                builder.add(createRoute(controller, "POST", pattern, method));
+            }
+            if (method.isAnnotationPresent(PutMapping.class)) {
+                String pattern = basePath + method.getAnnotation(PutMapping.class).value();
+                builder.add(createRoute(controller, "PUT", pattern, method));
+            }
+            if (method.isAnnotationPresent(PatchMapping.class)) {
+                String pattern = basePath + method.getAnnotation(PatchMapping.class).value();
+                builder.add(createRoute(controller, "PATCH", pattern, method));
+            }
+            if (method.isAnnotationPresent(DeleteMapping.class)) {
+                String pattern = basePath + method.getAnnotation(DeleteMapping.class).value();
+                builder.add(createRoute(controller, "DELETE", pattern, method));
+            }
         }
-        return "";
     }
 
-    private Object invokeMethod(Method method, HttpExchange exchange, String path) throws Exception {
+    private Route createRoute(Object controller, String httpMethod, String pattern, Method method) {
+        List<String> variableNames = RouteTable.variableNames(pattern);
         Parameter[] parameters = method.getParameters();
-        Object[] args = new Object[parameters.length];
+        MethodHandle[] binders = new MethodHandle[parameters.length];
 
         for (int i = 0; i < parameters.length; i++) {
             Parameter param = parameters[i];
-            
+
             if (param.isAnnotationPresent(PathVariable.class)) {
-                args[i] = extractPathVariable(method, path, param);
+                int position = pathVariablePosition(method, param, variableNames);
+                binders[i] = ArgumentBinders.pathVariable(position, param.getType());
+            } else if (param.isAnnotationPresent(RequestParam.class)) {
+                RequestParam requestParam = param.getAnnotation(RequestParam.class);
+                String name = requestParam.value().isEmpty() ? param.getName() : requestParam.value();
+                String defaultValue = requestParam.defaultValue().isEmpty() ? null : requestParam.defaultValue();
+                binders[i] = ArgumentBinders.requestParam(name, defaultValue, requestParam.required(), param.getType());
             } else if (param.isAnnotationPresent(RequestBody.class)) {
-                args[i] = parseRequestBody(exchange, param.getType());
+                MethodHandle reader = MethodHandles.insertArguments(READ_BODY.bindTo(this), 1, param.getParameterizedType());
+                binders[i] = ArgumentBinders.requestBody(reader, param.getType());
+            } else {
+                binders[i] = ArgumentBinders.unbound(param.getType());
             }
         }
 
-        return method.invoke(controller, args);
+        method.setAccessible(true);
+        RouteInvoker invoker = RouteInvoker.create(MethodHandles.lookup(), controller, method, binders);
+        return new Route(httpMethod, pattern, method, invoker);
     }
 
-    private Object extractPathVariable(Method method, String path, Parameter param) {
-        String methodPath = getMethodPath(method);
-        String pattern = methodPath.replaceAll("\\{([^}]+)\\}", "([^/]+)");
-        
-        Pattern compiledPattern = Pattern.compile(pattern);
-        Matcher matcher = compiledPattern.matcher(path);
-        
-        if (matcher.matches()) {
-            String value = matcher.group(1);
-            Class<?> paramType = param.getType();
-            
-            if (paramType == long.class || paramType == Long.class) {
-                return Long.parseLong(value);
-            } else if (paramType == int.class || paramType == Integer.class) {
-                return Integer.parseInt(value);
-            } else {
-                return value;
+    private int pathVariablePosition(Method method, Parameter param, List<String> variableNames) {
+        String name = param.getAnnotation(PathVariable.class).value();
+        if (name.isEmpty()) {
+            name = param.getName();
+        }
+
+        int index = variableNames.indexOf(name);
+        if (index < 0 && variableNames.size() == 1) {
+            index = 0;
+        }
+        if (index < 0) {
+            throw new IllegalStateException("Path variable '" + name + "' not found in mapping of " + method);
+        }
+        return index;
+    }
+
+    private Object parseRequestBody(HttpExchange exchange, Type targetType) throws IOException {
+        byte[] requestBody = exchange.getRequestBody().readAllBytes();
+        return Json.read(requestBody, targetType);
+    }
+
+    /**
+     * @param versionTag ETag from the version source, or null to hash the body of GET responses
+     */
+    private void sendSuccessResponse(HttpExchange exchange, Object result, int statusCode, String versionTag) throws IOException {
+        if (result instanceof Stream<?> stream) {
+            sendJsonStream(exchange, stream, statusCode, versionTag);
+            return;
+        }
+        JsonWriter writer = new JsonWriter();
+        Json.write(writer, result);
+
+        String etag = versionTag;
+        if (etag == null && statusCode == 200 && "GET".equals(exchange.getRequestMethod())) {
+            etag = contentTag(writer);
+        }
+        ResponseCompression.Encoding encoding = negotiate(exchange, writer.size());
+        if (etag != null) {
+            etag = withEncoding(etag, encoding);
+            if (notModified(exchange, etag)) {
+                return;
             }
+            exchange.getResponseHeaders().set("ETag", etag);
         }
-        
-        return null;
+        if (encoding == null) {
+            sendJson(exchange, statusCode, writer);
+            return;
+        }
+        byte[] compressed = compression.compress(encoding, writer.toByteBuffer());
+        exchange.getResponseHeaders().set("Content-Encoding", encoding.token());
+        exchange.sendResponseHeaders(statusCode, compressed.length);
+        exchange.getResponseBody().write(compressed);
     }
 
-    private Object parseRequestBody(HttpExchange exchange, Class<?> targetType) throws Exception {
-        String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-        
-        if (targetType == User.class) {
-            return parseJsonToUser(requestBody);
-        } else if (targetType.getSimpleName().equals("CreateUserRequest")) {
-            return parseJsonToCreateUserRequest(requestBody);
+    /**
+     * Write a stream as a JSON array with chunked transfer encoding, flushing every few KB.
+     * Once headers are out a failure can only cut the body short, see {@link #abort(HttpExchange)}.
+     */
+    private void sendJsonStream(HttpExchange exchange, Stream<?> stream, int statusCode, String versionTag) throws IOException {
+        try (stream) {
+            ResponseCompression.Encoding encoding = negotiate(exchange, -1);
+            if (versionTag != null) {
+                exchange.getResponseHeaders().set("ETag", withEncoding(versionTag, encoding));
+            }
+            if (encoding != null) {
+                exchange.getResponseHeaders().set("Content-Encoding", encoding.token());
+            }
+            exchange.sendResponseHeaders(statusCode, 0);
+
+            OutputStream body = encoding != null
+                    ? compression.wrap(encoding, exchange.getResponseBody())
+                    : exchange.getResponseBody();
+            JsonWriter writer = new JsonWriter(body, STREAM_BUFFER_SIZE);
+            writer.beginArray();
+            stream.forEach(element -> Json.write(writer, element));
+            writer.endArray();
+            writer.flush();
+            // Finishes the compressed stream
+            body.close();
+        } catch (RuntimeException e) {
+            if (exchange.getResponseCode() < 0) {
+                // Nothing sent yet, so the failure can still get a proper error response
+                throw e;
+            }
+            log.warn("Aborted streamed response for {}: {}", exchange.getRequestURI(), e.getMessage());
+            abort(exchange);
         }
-        
-        return null;
     }
 
-    private User parseJsonToUser(String json) {
-        json = json.trim().replaceAll("^\\{|\\}$", "");
-        String name = "";
-        String email = "";
-        long id = 0;
+    /**
+     * Make the exchange's close drop the connection instead of ending the body, so a client of a
+     * chunked response that failed part way sees it cut short rather than well-formed but
+     * truncated. Both engines close the connection when the response stream fails to close.
+     */
+    private static void abort(HttpExchange exchange) {
+        exchange.setStreams(null, ABORTED_BODY);
+    }
 
-        String[] pairs = json.split(",");
-        for (String pair : pairs) {
-            String[] keyValue = pair.split(":", 2);
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim().replaceAll("\"", "");
-                String value = keyValue[1].trim().replaceAll("\"", "");
+    private ResponseCompression.Encoding negotiate(HttpExchange exchange, long size) {
+        ResponseCompression current = compression;
+        if (current == null) {
+            return null;
+        }
+        // The body depends on Accept-Encoding whether or not this response ends up compressed
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        return current.negotiate(exchange, size);
+    }
 
-                switch (key) {
-                    case "id" -> id = value.isEmpty() ? 0 : Long.parseLong(value);
-                    case "name" -> name = value;
-                    case "email" -> email = value;
-                }
-            }
+    private String versionTag() {
+        LongSupplier source = versionSource;
+        if (source == null) {
+            return null;
         }
+        long version = source.getAsLong();
+        return version >= 0 ? "\"v" + Long.toHexString(version) + "\"" : null;
+    }
 
-        return new User(id, name, email);
+    /**
+     * Strong ETag of the serialized body: its length and CRC32C, which is hardware-accelerated
+     */
+    private static String contentTag(JsonWriter writer) {
+        CRC32C crc = new CRC32C();
+        crc.update(writer.toByteBuffer());
+        return "\"" + Integer.toHexString(writer.size()) + "-" + Long.toHexString(crc.getValue()) + "\"";
     }
 
-    private Object parseJsonToCreateUserRequest(String json) {
-        json = json.trim().replaceAll("^\\{|\\}$", "");
-        String name = "";
-        String email = "";
+    /**
+     * Each encoding is a different representation, so it gets its own strong tag
+     */
+    private static String withEncoding(String etag, ResponseCompression.Encoding encoding) {
+        if (encoding == null) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + encoding.token() + "\"";
+    }
 
-        String[] pairs = json.split(",");
-        for (String pair : pairs) {
-            String[] keyValue = pair.split(":", 2);
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim().replaceAll("\"", "");
-                String value = keyValue[1].trim().replaceAll("\"", "");
+    /**
+     * Answer 304 if If-None-Match names this resource's tag in any encoding.
+     * If-None-Match uses weak comparison, so W/ prefixes and encoding suffixes are ignored.
+     */
+    private boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
 
-                if ("name".equals(key)) {
-                    name = value;
-                } else if ("email".equals(key)) {
-                    email = value;
-                }
+        boolean matches = ifNoneMatch.trim().equals("*");
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (matches) {
+                break;
             }
+            matches = stripTag(candidate).equals(stripTag(etag));
         }
-
-        try {
-            Class<?> requestClass = Class.forName("controller.UserController$CreateUserRequest");
-            return requestClass.getConstructors()[0].newInstance(name, email);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create CreateUserRequest", e);
+        if (!matches) {
+            return false;
         }
+
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(304, -1);
+        return true;
     }
 
-    private void sendSuccessResponse(HttpExchange exchange, Object result, int statusCode) throws IOException {
-        String json = toJson(result);
-        byte[] body = json.getBytes(StandardCharsets.UTF_8);
-        exchange.sendResponseHeaders(statusCode, body.length);
-        exchange.getResponseBody().write(body);
+    private static String stripTag(String tag) {
+        String value = tag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            value = value.substring(1, value.length() - 1);
+        }
+        for (ResponseCompression.Encoding encoding : ResponseCompression.Encoding.values()) {
+            if (value.endsWith("-" + encoding.token())) {
+                return value.substring(0, value.length() - encoding.token().length() - 1);
+            }
+        }
+        return value;
     }
 
     private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
-        String json = "{\"error\":\"" + message.replace("\"", "\\\"") + "\"}";
-        byte[] body = json.getBytes(StandardCharsets.UTF_8);
-        exchange.sendResponseHeaders(statusCode, body.length);
-        exchange.getResponseBody().write(body);
-    }
-
-    private String toJson(Object obj) {
-        if (obj instanceof List<?> list) {
-            StringBuilder sb = new StringBuilder("[");
-            for (int i = 0; i < list.size(); i++) {
-                if (i > 0) sb.append(",");
-                sb.append(toJson(list.get(i)));
-            }
-            sb.append("]");
-            return sb.toString();
-        } else if (obj instanceof User user) {
-            return String.format("{\"id\":%d,\"name\":\"%s\",\"email\":\"%s\"}", 
-                user.id(), user.name(), user.email());
-        } else if (obj instanceof Optional<?> opt) {
-            if (opt.isPresent()) {
-                return toJson(opt.get());
-            } else {
-                return "null";
+        JsonWriter writer = new JsonWriter(64);
+        writer.beginObject().name("error").value(message).endObject();
+        sendJson(exchange, statusCode, writer);
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, JsonWriter writer) throws IOException {
+        exchange.sendResponseHeaders(statusCode, writer.size());
+        writer.writeTo(exchange.getResponseBody());
+    }
+
+    /**
+     * Latency and responses by status class for one route, resolved when the router is built
+     */
+    private static final class RouteMetrics {
+        private final String method;
+        private final String route;
+        private final Histogram latency;
+        // One counter per status class, registered on first use so unused classes are not exported
+        private final Counter[] responses = new Counter[5];
+
+        RouteMetrics(String method, String route) {
+            this.method = method;
+            this.route = route;
+            this.latency = MetricsRegistry.global().histogram("http_server_request_duration_seconds",
+                    "HTTP request latency by route", "method", method, "route", route);
+        }
+
+        void record(long startNanos, int status) {
+            latency.recordSince(startNanos);
+            int statusClass = status / 100 - 1;
+            // No response code means the exchange failed before headers were sent
+            if (statusClass < 0 || statusClass >= responses.length) {
+                statusClass = 4;
             }
-        } else {
-            return "\"" + obj.toString() + "\"";
+
+            Counter counter = responses[statusClass];
+            if (counter == null) {
+                // Racing threads get the same registered counter
+                counter = MetricsRegistry.global().counter("http_server_requests_total",
+                        "HTTP responses by route and status class",
+                        "method", method, "route", route, "status", (statusClass + 1) + "xx");
+                responses[statusClass] = counter;
+            }
+            counter.increment();
         }
     }
 }
@@ -0,0 +1,133 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Factories for argument binder handles of type (HttpExchange, Match)P,
+ * resolved once per route when the route table is built.
+ */
+public final class ArgumentBinders {
+    private static final MethodHandle MATCH_VARIABLE;
+    private static final MethodHandle PARSE_LONG;
+    private static final MethodHandle PARSE_INT;
+    private static final MethodHandle QUERY_PARAMETER;
+    private static final MethodHandle LONG_OR_NULL;
+    private static final MethodHandle INT_OR_NULL;
+    private static final MethodHandle PARSE_BOOLEAN;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MATCH_VARIABLE = lookup.findVirtual(RouteTable.Match.class, "variable",
+                    MethodType.methodType(String.class, int.class));
+            PARSE_LONG = lookup.findStatic(Long.class, "parseLong", MethodType.methodType(long.class, String.class));
+            PARSE_INT = lookup.findStatic(Integer.class, "parseInt", MethodType.methodType(int.class, String.class));
+            QUERY_PARAMETER = lookup.findStatic(ArgumentBinders.class, "queryParameter",
+                    MethodType.methodType(String.class, HttpExchange.class, String.class, String.class, boolean.class));
+            LONG_OR_NULL = lookup.findStatic(ArgumentBinders.class, "longOrNull", MethodType.methodType(Long.class, String.class));
+            INT_OR_NULL = lookup.findStatic(ArgumentBinders.class, "intOrNull", MethodType.methodType(Integer.class, String.class));
+            PARSE_BOOLEAN = lookup.findStatic(Boolean.class, "parseBoolean", MethodType.methodType(boolean.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ArgumentBinders() {
+    }
+
+    /**
+     * Bind a path variable by its position in the pattern, converting it to the parameter type
+     */
+    public static MethodHandle pathVariable(int position, Class<?> type) {
+        // (Match)String
+        MethodHandle value = MethodHandles.insertArguments(MATCH_VARIABLE, 1, position);
+
+        if (type == long.class || type == Long.class) {
+            value = MethodHandles.filterReturnValue(value, PARSE_LONG);
+        } else if (type == int.class || type == Integer.class) {
+            value = MethodHandles.filterReturnValue(value, PARSE_INT);
+        }
+        return MethodHandles.dropArguments(value.asType(value.type().changeReturnType(type)), 0, HttpExchange.class);
+    }
+
+    /**
+     * Bind a query string parameter, converting it to the parameter type
+     * @param defaultValue value used when the parameter is absent, or null for none
+     */
+    public static MethodHandle requestParam(String name, String defaultValue, boolean required, Class<?> type) {
+        // Primitives have no null to fall back on
+        boolean mandatory = required || (type.isPrimitive() && defaultValue == null);
+        // (HttpExchange)String
+        MethodHandle value = MethodHandles.insertArguments(QUERY_PARAMETER, 1, name, defaultValue, mandatory);
+
+        if (type == long.class) {
+            value = MethodHandles.filterReturnValue(value, PARSE_LONG);
+        } else if (type == int.class) {
+            value = MethodHandles.filterReturnValue(value, PARSE_INT);
+        } else if (type == boolean.class || type == Boolean.class) {
+            value = MethodHandles.filterReturnValue(value, PARSE_BOOLEAN);
+        } else if (type == Long.class) {
+            value = MethodHandles.filterReturnValue(value, LONG_OR_NULL);
+        } else if (type == Integer.class) {
+            value = MethodHandles.filterReturnValue(value, INT_OR_NULL);
+        }
+        return MethodHandles.dropArguments(value.asType(value.type().changeReturnType(type)), 1, RouteTable.Match.class);
+    }
+
+    /**
+     * Bind the request body through a reader of type (HttpExchange)Object
+     */
+    public static MethodHandle requestBody(MethodHandle reader, Class<?> type) {
+        MethodHandle body = reader.asType(MethodType.methodType(type, HttpExchange.class));
+        return MethodHandles.dropArguments(body, 1, RouteTable.Match.class);
+    }
+
+    /**
+     * Parameters without a binding annotation receive null (or zero for primitives)
+     */
+    public static MethodHandle unbound(Class<?> type) {
+        return MethodHandles.dropArguments(MethodHandles.zero(type), 0, HttpExchange.class, RouteTable.Match.class);
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name, String defaultValue, boolean required) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            int start = 0;
+            while (start <= query.length()) {
+                int end = query.indexOf('&', start);
+                if (end < 0) {
+                    end = query.length();
+                }
+                int eq = query.indexOf('=', start);
+                int keyEnd = (eq < 0 || eq > end) ? end : eq;
+                if (decode(query.substring(start, keyEnd)).equals(name)) {
+                    return keyEnd == end ? "" : decode(query.substring(keyEnd + 1, end));
+                }
+                start = end + 1;
+            }
+        }
+
+        if (defaultValue == null && required) {
+            throw new IllegalArgumentException("Missing request parameter '" + name + "'");
+        }
+        return defaultValue;
+    }
+
+    private static String decode(String raw) {
+        return raw.indexOf('%') < 0 && raw.indexOf('+') < 0 ? raw : URLDecoder.decode(raw, StandardCharsets.UTF_8);
+    }
+
+    private static Long longOrNull(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private static Integer intOrNull(String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+}
@@ -0,0 +1,44 @@
+package http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of equally sized direct buffers. Direct buffers let socket reads and writes
+ * skip the JDK's copy through its own temporary direct buffer, but they are expensive to
+ * allocate and only freed by GC, so they are recycled instead.
+ */
+final class BufferPool {
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * A cleared buffer; allocates a new one when the pool is empty
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Return a buffer; it is dropped for GC when the pool is full
+     */
+    void release(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    int pooled() {
+        return buffers.size();
+    }
+}
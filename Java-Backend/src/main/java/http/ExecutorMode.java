@@ -0,0 +1,26 @@
+package http;
+
+import java.util.Locale;
+
+/**
+ * How HTTP exchanges are dispatched to worker threads, selected with {@code http.executor}
+ */
+public enum ExecutorMode {
+    /** Fixed number of platform threads */
+    FIXED,
+    /** Platform threads created on demand up to a bound and retired when idle */
+    ELASTIC,
+    /** One virtual thread per request (JDK 21+, falls back to ELASTIC on older runtimes) */
+    VIRTUAL;
+
+    public static ExecutorMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return FIXED;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown http.executor '" + value + "', expected fixed, elastic or virtual");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Contents of small files in direct buffers, evicted least recently used once their total size
+ * passes the budget. Off-heap, the bytes add nothing to GC work and the NIO engine writes them
+ * to the socket without another copy. An entry is only served while the file still has the
+ * size and modification time it was read with, so edits on disk show up on the next request.
+ */
+final class FileBufferCache {
+    private final Cache<Path, Entry> cache;
+    private final int maxFileBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    record Entry(long size, long lastModified, ByteBuffer content) {
+    }
+
+    FileBufferCache(int maxFileBytes, long maxBytes) {
+        this.maxFileBytes = maxFileBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Path, Entry>weigher((path, entry) -> entry.content().capacity())
+                .build();
+
+        MetricsRegistry registry = MetricsRegistry.global();
+        this.hits = registry.counter("http_static_cache_requests_total", "Static file cache lookups", "result", "hit");
+        this.misses = registry.counter("http_static_cache_requests_total", "Static file cache lookups", "result", "miss");
+        registry.gauge("http_static_cache_bytes", "Bytes of file content held in the static file cache",
+                () -> cache.asMap().values().stream().mapToLong(entry -> entry.content().capacity()).sum());
+    }
+
+    boolean accepts(long size) {
+        return size <= maxFileBytes;
+    }
+
+    /**
+     * A read-only view of the file's content, loading it if it is missing or stale
+     */
+    ByteBuffer get(Path file, long size, long lastModified) throws IOException {
+        Entry entry = cache.getIfPresent(file);
+        if (entry != null && entry.size() == size && entry.lastModified() == lastModified) {
+            hits.increment();
+            return entry.content().duplicate();
+        }
+        misses.increment();
+
+        ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    break;
+                }
+            }
+        }
+        if (content.hasRemaining()) {
+            // Shorter than its attributes said
+            throw new IOException("File changed while being read: " + file);
+        }
+        content.flip();
+        // Concurrent misses may each load; the last put wins and the others are garbage
+        cache.put(file, new Entry(size, lastModified, content.asReadOnlyBuffer()));
+        return content.asReadOnlyBuffer();
+    }
+}
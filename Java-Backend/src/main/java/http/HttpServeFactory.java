@@ -1,17 +1,153 @@
 package http;
 
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class HttpServeFactory {
+    private static final Logger log = LoggerFactory.getLogger(HttpServeFactory.class);
+    private static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
     public static HttpServer create(int port) throws Exception {
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.setExecutor(Executors.newFixedThreadPool(
-                Math.max(4, Runtime.getRuntime().availableProcessors() * 2)
-        ));
+        return create(port, new Properties());
+    }
 
+    /**
+     * Create a server whose executor is chosen by configuration:
+     * http.executor (fixed | elastic | virtual), http.executor.threads,
+     * http.executor.queue and http.maxInFlight for admission control
+     */
+    public static HttpServer create(int port, Properties cfg) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(createAdmissionExecutor(port, cfg));
         return  server;
     }
+
+    /**
+     * Create the server engine chosen by http.engine: jdk (com.sun.net.httpserver, the default)
+     * or nio (see {@link NioServerEngine}, tuned with http.nio.*). Both use the executor and
+     * admission control configured for {@link #create(int, Properties)}.
+     */
+    public static ServerEngine createEngine(int port, Properties cfg) throws Exception {
+        String engine = cfg.getProperty("http.engine", "jdk").trim().toLowerCase(Locale.ROOT);
+        switch (engine) {
+            case "jdk" -> {
+                return new JdkServerEngine(create(port, cfg));
+            }
+            case "nio" -> {
+                NioServerEngine nio = new NioServerEngine(new InetSocketAddress(port), createAdmissionExecutor(port, cfg));
+                nio.setBufferSize(Integer.parseInt(cfg.getProperty("http.nio.bufferSize", "16384")));
+                nio.setMaxPooledBuffers(Integer.parseInt(cfg.getProperty("http.nio.maxPooledBuffers", "1024")));
+                nio.setIdleTimeoutMillis(Long.parseLong(cfg.getProperty("http.nio.idleTimeoutMillis", "60000")));
+                nio.setWriteTimeoutMillis(Long.parseLong(cfg.getProperty("http.nio.writeTimeoutMillis", "30000")));
+                nio.setMaxRequestBody(Long.parseLong(cfg.getProperty("http.maxRequestBody", String.valueOf(1024 * 1024))));
+                MetricsRegistry.global().gauge("http_server_open_connections", "Open client connections",
+                        nio::openConnections, "port", String.valueOf(port));
+                return nio;
+            }
+            default -> throw new IllegalArgumentException("Unknown http.engine '" + engine + "', expected jdk or nio");
+        }
+    }
+
+    private static AdmissionControlledExecutor createAdmissionExecutor(int port, Properties cfg) {
+        ExecutorMode mode = ExecutorMode.parse(cfg.getProperty("http.executor"));
+        int threads = Integer.parseInt(cfg.getProperty("http.executor.threads", String.valueOf(DEFAULT_THREADS)));
+        int queue = Integer.parseInt(cfg.getProperty("http.executor.queue", String.valueOf(threads * 64)));
+        int maxInFlight = Integer.parseInt(cfg.getProperty("http.maxInFlight", String.valueOf(threads * 8)));
+
+        AdmissionControlledExecutor executor = new AdmissionControlledExecutor(createExecutor(mode, threads, queue), maxInFlight);
+        registerMetrics(executor, port);
+        return executor;
+    }
+
+    private static void registerMetrics(AdmissionControlledExecutor executor, int port) {
+        MetricsRegistry registry = MetricsRegistry.global();
+        String portLabel = String.valueOf(port);
+        registry.gauge("http_server_requests_in_flight", "Requests admitted and not yet finished",
+                executor::inFlight, "port", portLabel);
+        registry.gauge("http_server_max_in_flight", "Admission control limit",
+                executor::maxInFlight, "port", portLabel);
+        registry.gauge("http_server_queue_depth", "Requests waiting for a worker thread",
+                executor::queueDepth, "port", portLabel);
+        registry.gauge("http_server_queue_delay_seconds", "Smallest wait for a worker thread over the last 100ms",
+                () -> executor.queueDelayNanos() / 1e9, "port", portLabel);
+        registry.counterFunction("http_server_rejected_total", "Requests rejected by admission control",
+                executor::rejectedCount, "port", portLabel);
+    }
+
+    /**
+     * Register a handler and install the server's admission control filter on it
+     */
+    public static HttpContext createContext(HttpServer server, String path, HttpHandler handler) {
+        HttpContext context = server.createContext(path, handler);
+        if (server.getExecutor() instanceof AdmissionControlledExecutor admission) {
+            context.getFilters().add(admission.rejectionFilter());
+        }
+        return context;
+    }
+
+    static ExecutorService createExecutor(ExecutorMode mode, int threads, int queue) {
+        return switch (mode) {
+            case FIXED -> new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queue), workerThreads("http-worker-"));
+            case ELASTIC -> elastic(threads, queue);
+            case VIRTUAL -> {
+                ExecutorService virtual = virtualThreadPerTask();
+                if (virtual == null) {
+                    log.warn("Virtual threads need JDK 21+, falling back to elastic executor");
+                    yield elastic(threads, queue);
+                }
+                yield virtual;
+            }
+        };
+    }
+
+    private static ExecutorService elastic(int maxThreads, int queue) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queue), workerThreads("http-elastic-"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() looked up reflectively so the build can target JDK 17
+     */
+    private static ExecutorService virtualThreadPerTask() {
+        try {
+            MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invokeExact();
+        } catch (NoSuchMethodException | IllegalAccessException | UnsupportedOperationException e) {
+            // Not available, or still a preview feature on this runtime
+            return null;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot create virtual thread executor", t);
+        }
+    }
+
+    static ThreadFactory workerThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
@@ -0,0 +1,50 @@
+package http;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Engine backed by the JDK's com.sun.net.httpserver.HttpServer
+ */
+public class JdkServerEngine implements ServerEngine {
+    private final HttpServer server;
+
+    public JdkServerEngine(HttpServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        HttpServeFactory.createContext(server, path, handler);
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        if (server.getExecutor() instanceof AdmissionControlledExecutor executor) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    @Override
+    public Executor executor() {
+        return server.getExecutor();
+    }
+
+    public HttpServer server() {
+        return server;
+    }
+}
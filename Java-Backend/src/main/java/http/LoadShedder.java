@@ -0,0 +1,63 @@
+package http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Sheds requests early when a queueing delay, such as time spent waiting for a worker thread
+ * or for a database connection, stays above a target. Requests are dropped with a probability
+ * that grows with the excess, from 0 at the target to all of them at twice the target, so
+ * throughput tapers instead of switching off and the queues behind it stay short.
+ */
+public final class LoadShedder {
+    private record Signal(String name, LongSupplier delayNanos) {
+    }
+
+    private final long targetNanos;
+    private final List<Signal> signals = new ArrayList<>();
+
+    public LoadShedder(long targetMillis) {
+        if (targetMillis <= 0) {
+            throw new IllegalArgumentException("targetMillis must be positive");
+        }
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+    }
+
+    /**
+     * Read http.shed.enabled and http.shed.targetMillis; null when shedding is disabled
+     */
+    public static LoadShedder fromProperties(Properties props) {
+        if (!Boolean.parseBoolean(props.getProperty("http.shed.enabled", "false"))) {
+            return null;
+        }
+        return new LoadShedder(Long.parseLong(props.getProperty("http.shed.targetMillis", "50")));
+    }
+
+    /**
+     * Watch a delay, e.g. {@link AdmissionControlledExecutor#queueDelayNanos()}.
+     * Register all signals before the shedder is handed to a router.
+     */
+    public LoadShedder addSignal(String name, LongSupplier delayNanos) {
+        signals.add(new Signal(name, delayNanos));
+        return this;
+    }
+
+    /**
+     * Decide whether to drop the current request
+     * @return the name of the overloaded signal, or null to let the request through
+     */
+    public String shed() {
+        for (int i = 0; i < signals.size(); i++) {
+            Signal signal = signals.get(i);
+            long excess = signal.delayNanos().getAsLong() - targetNanos;
+            if (excess > 0 && (excess >= targetNanos || ThreadLocalRandom.current().nextLong(targetNanos) < excess)) {
+                return signal.name();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,466 @@
+package http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HttpExchange for one request on a {@link NioServerEngine} connection.
+ * The response head and body are encoded straight into a pooled direct buffer that is
+ * written to the socket when it fills up, on flush() and on close(). Content length
+ * follows sendResponseHeaders: a positive length is sent as-is, 0 means chunked and
+ * -1 means no body.
+ */
+final class NioHttpExchange extends HttpExchange {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    private final NioServerEngine engine;
+    private final NioServerEngine.Connection connection;
+    private final RequestHead head;
+    private final Headers responseHeaders = new Headers();
+    private final ResponseStream responseStream = new ResponseStream();
+    private HttpContext context;
+    private InputStream requestBody;
+    private OutputStream responseBody = responseStream;
+    private Map<String, Object> attributes;
+    private int responseCode = -1;
+    private boolean closed;
+    private volatile boolean detached;
+
+    NioHttpExchange(NioServerEngine engine, NioServerEngine.Connection connection, RequestHead head, byte[] body) {
+        this.engine = engine;
+        this.connection = connection;
+        this.head = head;
+        this.requestBody = new ByteArrayInputStream(body);
+    }
+
+    void setContext(HttpContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Leave the exchange open when the handler returns, for a handler that completes the
+     * response from another thread; that thread must close it. The JDK server never closes
+     * an exchange for the handler, so only this engine needs telling.
+     */
+    void detach() {
+        detached = true;
+    }
+
+    boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * Write a body buffer straight to the socket, without copying it into the response buffer.
+     * Headers must already be sent with a length that covers it.
+     */
+    void write(ByteBuffer content) throws IOException {
+        responseStream.writeDirect(content.remaining(), () -> connection.write(content));
+    }
+
+    /**
+     * Send count bytes of the file from position as body with FileChannel.transferTo, so the
+     * kernel copies them from the page cache to the socket. Headers must already be sent with a
+     * length that covers them.
+     */
+    void transferFrom(FileChannel file, long position, long count) throws IOException {
+        responseStream.writeDirect(count, () -> connection.transferFrom(file, position, count));
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return head.headers();
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return head.uri();
+    }
+
+    /**
+     * The request target as sent, for logging
+     */
+    String requestTarget() {
+        return head.target();
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return head.method();
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            responseBody.close();
+        } catch (IOException e) {
+            responseStream.keepAlive = false;
+        }
+        // In case a filter's replacement stream did not close ours
+        responseStream.finish();
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode >= 0) {
+            throw new IOException("Response headers already sent");
+        }
+        responseCode = rCode;
+        responseStream.begin(rCode, responseLength);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress;
+    }
+
+    @Override
+    public String getProtocol() {
+        return head.protocol();
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes != null ? attributes.get(name) : null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * Send a small JSON error if no response has been started, otherwise give up on the connection
+     */
+    void sendError(int status, String message) {
+        if (responseCode >= 0) {
+            responseStream.keepAlive = false;
+            return;
+        }
+        byte[] body = ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        try {
+            responseHeaders.set("Content-Type", "application/json; charset=utf-8");
+            sendResponseHeaders(status, body.length);
+            responseStream.write(body, 0, body.length);
+        } catch (IOException e) {
+            responseStream.keepAlive = false;
+        }
+    }
+
+    static String reasonPhrase(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 411 -> "Length Required";
+            case 413 -> "Content Too Large";
+            case 416 -> "Range Not Satisfiable";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            default -> "";
+        };
+    }
+
+    @FunctionalInterface
+    private interface Transfer {
+        void run() throws IOException;
+    }
+
+    /**
+     * Response head and body buffered in one pooled direct buffer
+     */
+    private final class ResponseStream extends OutputStream {
+        private ByteBuffer buffer;
+        // Response head bytes at the start of the buffer, which must not be chunk-framed
+        private int headBytes;
+        // Set while encoding the head, which is flushed unframed if it overflows the buffer
+        private boolean writingHead;
+        private boolean started;
+        private boolean finished;
+        private boolean chunked;
+        private boolean bodyAllowed;
+        private long expectedLength;
+        private long written;
+        boolean keepAlive = true;
+
+        void begin(int status, long responseLength) throws IOException {
+            started = true;
+            keepAlive &= head.keepAlive();
+            bodyAllowed = responseLength >= 0 && status >= 200 && status != 204 && status != 304
+                    && !"HEAD".equals(head.method());
+            String connectionHeader = responseHeaders.getFirst("Connection");
+            if (connectionHeader != null && connectionHeader.equalsIgnoreCase("close")) {
+                keepAlive = false;
+            }
+
+            boolean http11 = "HTTP/1.1".equals(head.protocol());
+            if (bodyAllowed && responseLength == 0) {
+                // HTTP/1.0 has no chunked encoding: the body ends when the connection closes
+                chunked = http11;
+                keepAlive &= http11;
+                expectedLength = -1;
+            } else {
+                expectedLength = bodyAllowed ? responseLength : 0;
+            }
+
+            buffer = engine.buffers().acquire();
+            writingHead = true;
+            putAscii(head.protocol());
+            put((byte) ' ');
+            putAscii(Integer.toString(status));
+            put((byte) ' ');
+            putAscii(reasonPhrase(status));
+            put(CRLF);
+            for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+                for (String value : header.getValue()) {
+                    putAscii(header.getKey());
+                    put((byte) ':');
+                    put((byte) ' ');
+                    putAscii(value);
+                    put(CRLF);
+                }
+            }
+            put(engine.dateHeader());
+            boolean headRequest = "HEAD".equals(head.method());
+            if (chunked) {
+                putAscii("Transfer-Encoding: chunked\r\n");
+            } else if (status >= 200 && status != 204 && status != 304 && expectedLength >= 0
+                    && !(headRequest && (responseLength == 0 || responseHeaders.containsKey("Content-Length")))) {
+                // A HEAD response declares the length the GET body would have had, passed here or,
+                // as the JDK server expects, set as a header with -1 here
+                putAscii("Content-Length: " + Math.max(responseLength, 0) + "\r\n");
+            }
+            if (!keepAlive) {
+                putAscii("Connection: close\r\n");
+            } else if (!http11) {
+                putAscii("Connection: keep-alive\r\n");
+            }
+            put(CRLF);
+            writingHead = false;
+            headBytes = buffer.position();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!started) {
+                throw new IOException("sendResponseHeaders() must be called before writing the body");
+            }
+            if (finished) {
+                throw new IOException("Response body already closed");
+            }
+            if (!bodyAllowed) {
+                return;
+            }
+            if (expectedLength >= 0 && written + len > expectedLength) {
+                throw new IOException("Response body exceeds Content-Length " + expectedLength);
+            }
+            written += len;
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    send(false);
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Send what is buffered, then let the transfer write length body bytes past the buffer
+         */
+        void writeDirect(long length, Transfer transfer) throws IOException {
+            if (!started) {
+                throw new IOException("sendResponseHeaders() must be called before writing the body");
+            }
+            if (finished) {
+                throw new IOException("Response body already closed");
+            }
+            if (!bodyAllowed) {
+                return;
+            }
+            if (chunked || written + length > expectedLength) {
+                throw new IOException("Direct writes need a Content-Length covering them, got " + expectedLength);
+            }
+            written += length;
+            if (buffer.position() > 0) {
+                send(false);
+            }
+            transfer.run();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (started && !finished && buffer.position() > 0) {
+                send(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!started || finished) {
+                return;
+            }
+            try {
+                send(true);
+            } catch (IOException e) {
+                keepAlive = false;
+                throw e;
+            } finally {
+                finish();
+            }
+        }
+
+        /**
+         * Release the buffer and hand the connection back, once per exchange
+         */
+        void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (!started || (expectedLength >= 0 && written < expectedLength)) {
+                // No response, or a truncated one: the connection cannot be reused
+                keepAlive = false;
+            }
+            if (buffer != null) {
+                engine.buffers().release(buffer);
+                buffer = null;
+            }
+            connection.finished(keepAlive);
+        }
+
+        private void send(boolean last) throws IOException {
+            buffer.flip();
+            try {
+                int bodyBytes = buffer.limit() - headBytes;
+                if (!chunked || writingHead) {
+                    connection.write(buffer);
+                } else if (bodyBytes == 0) {
+                    if (last) {
+                        connection.write(buffer, ByteBuffer.wrap(LAST_CHUNK));
+                    } else {
+                        connection.write(buffer);
+                    }
+                } else {
+                    ByteBuffer headPart = buffer.slice(0, headBytes);
+                    ByteBuffer bodyPart = buffer.slice(headBytes, bodyBytes);
+                    ByteBuffer size = ByteBuffer.wrap((Integer.toHexString(bodyBytes) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    ByteBuffer trailer = ByteBuffer.wrap(last ? new byte[]{'\r', '\n', '0', '\r', '\n', '\r', '\n'} : CRLF);
+                    connection.write(headPart, size, bodyPart, trailer);
+                }
+            } finally {
+                headBytes = 0;
+                buffer.clear();
+            }
+        }
+
+        private void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                send(false);
+            }
+            buffer.put(b);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                put(b);
+            }
+        }
+
+        private void putAscii(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                put((byte) value.charAt(i));
+            }
+        }
+    }
+}
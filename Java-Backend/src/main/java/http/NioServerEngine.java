@@ -0,0 +1,673 @@
+package http;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/1.1 engine on a single selector thread with keep-alive and pipelining.
+ *
+ * The selector thread accepts connections, reads into pooled direct buffers and parses
+ * request heads in place; handlers then run on the executor with a regular HttpExchange.
+ * A connection serves one request at a time: while a handler runs its read interest is
+ * off, and pipelined requests already in the buffer are parsed once the response is
+ * complete, so responses always go out in request order. Handlers write from their own
+ * thread, waiting on a temporary selector when the socket buffer is full.
+ *
+ * Chunked request bodies are not supported (501); request bodies need Content-Length.
+ */
+public class NioServerEngine implements ServerEngine {
+    private static final Logger log = LoggerFactory.getLogger(NioServerEngine.class);
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = new byte[0];
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private final InetSocketAddress bindAddress;
+    private final Executor executor;
+    private final List<NioContext> contexts = new CopyOnWriteArrayList<>();
+    // Connections whose response finished, handed back to the selector thread
+    private final Queue<Connection> resumed = new ConcurrentLinkedQueue<>();
+    private final Queue<Selector> writeSelectors = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+
+    private int bufferSize = 16 * 1024;
+    private int maxPooledBuffers = 1024;
+    private long idleTimeoutMillis = 60_000;
+    private long writeTimeoutMillis = 30_000;
+    private long maxRequestBody = 1024 * 1024;
+
+    private BufferPool buffers;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+    private volatile boolean accepting;
+    private volatile byte[] dateHeader;
+
+    public NioServerEngine(InetSocketAddress bindAddress, Executor executor) {
+        this.bindAddress = bindAddress;
+        this.executor = executor;
+        refreshDate();
+    }
+
+    /**
+     * Size of each pooled read/write buffer; also the largest request head accepted (call before start)
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("bufferSize must be at least 1024");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Buffers kept for reuse; more are allocated under load and left to GC afterwards (call before start)
+     */
+    public void setMaxPooledBuffers(int maxPooledBuffers) {
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Connections with no request in progress are closed after this long without data
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * A response write that makes no progress for this long fails and closes the connection
+     */
+    public void setWriteTimeoutMillis(long writeTimeoutMillis) {
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    /**
+     * Larger request bodies are answered with 413
+     */
+    public void setMaxRequestBody(long maxRequestBody) {
+        this.maxRequestBody = maxRequestBody;
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        NioContext context = new NioContext(path, handler);
+        if (executor instanceof AdmissionControlledExecutor admission) {
+            context.getFilters().add(admission.rejectionFilter());
+        }
+        contexts.add(context);
+    }
+
+    @Override
+    public void start() throws IOException {
+        buffers = new BufferPool(bufferSize, maxPooledBuffers);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(bindAddress, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        accepting = true;
+        // Not a daemon: like the JDK server, the engine keeps the JVM alive
+        selectorThread = new Thread(this::run, "http-nio-selector");
+        selectorThread.start();
+    }
+
+    @Override
+    public void stop(int delaySeconds) {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        selector.wakeup();
+
+        long deadline = System.currentTimeMillis() + delaySeconds * 1000L;
+        while (activeExchanges.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (executor instanceof AdmissionControlledExecutor admission) {
+            admission.shutdown();
+        }
+        Selector writeSelector;
+        while ((writeSelector = writeSelectors.poll()) != null) {
+            closeQuietly(writeSelector);
+        }
+    }
+
+    @Override
+    public Executor executor() {
+        return executor;
+    }
+
+    @Override
+    public InetSocketAddress address() {
+        if (serverChannel != null && serverChannel.isOpen()) {
+            try {
+                return (InetSocketAddress) serverChannel.getLocalAddress();
+            } catch (IOException e) {
+                // Fall back to the configured address
+            }
+        }
+        return bindAddress;
+    }
+
+    public int openConnections() {
+        return openConnections.get();
+    }
+
+    private void run() {
+        long nextHousekeeping = 0;
+        try {
+            while (running) {
+                selector.select(1000);
+
+                if (!accepting && serverChannel.isOpen()) {
+                    serverChannel.close();
+                }
+
+                Connection connection;
+                while ((connection = resumed.poll()) != null) {
+                    connection.resume();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        Connection readable = (Connection) key.attachment();
+                        try {
+                            readable.onReadable();
+                        } catch (RuntimeException e) {
+                            // A bug handling one connection must not take the selector down
+                            log.warn("Closing connection from {} after unexpected error", readable.remoteAddress, e);
+                            readable.close();
+                        }
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now >= nextHousekeeping) {
+                    refreshDate();
+                    closeIdle(now);
+                    nextHousekeeping = now + 1000;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Selector loop failed, engine stopping", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            openConnections.incrementAndGet();
+        }
+    }
+
+    private void closeIdle(long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection
+                    && !connection.busy && now - connection.lastActive > idleTimeoutMillis) {
+                connection.close();
+            }
+        }
+    }
+
+    private void refreshDate() {
+        String date = HTTP_DATE.format(ZonedDateTime.now(ZoneOffset.UTC));
+        dateHeader = ("Date: " + date + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    byte[] dateHeader() {
+        return dateHeader;
+    }
+
+    BufferPool buffers() {
+        return buffers;
+    }
+
+    /**
+     * Longest context path that prefixes the request path, as the JDK server does
+     */
+    private NioContext findContext(String path) {
+        NioContext best = null;
+        for (NioContext context : contexts) {
+            if (path.startsWith(context.getPath())
+                    && (best == null || context.getPath().length() > best.getPath().length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    private void serve(NioHttpExchange exchange) {
+        try {
+            NioContext context = findContext(exchange.getRequestURI().getPath());
+            if (context == null) {
+                exchange.sendError(404, "No context found for request");
+                return;
+            }
+            exchange.setContext(context);
+            new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(exchange);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Exchange failed for {} {}", exchange.getRequestMethod(), exchange.requestTarget(), e);
+            exchange.sendError(500, "Internal Server Error");
+        } finally {
+            if (!exchange.isDetached()) {
+                exchange.close();
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (Exception ignored) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * One client connection. Fields are owned by the selector thread while the connection is
+     * idle or reading, and by the handler's thread while busy; the handoffs go through the
+     * executor and the resumed queue.
+     */
+    final class Connection {
+        final SocketChannel channel;
+        final InetSocketAddress remoteAddress;
+        final InetSocketAddress localAddress;
+        SelectionKey key;
+        long lastActive = System.currentTimeMillis();
+        volatile boolean busy;
+
+        // Bytes [0, position) have been read; the next request starts at consumed
+        private ByteBuffer in;
+        private int consumed;
+        private RequestHead head;
+        private byte[] body;
+        // Body read so far, grown as bytes arrive up to bodyLength
+        private ByteBuffer bodyBuffer;
+        private int bodyLength;
+        private int requestEnd;
+        private boolean closeAfterResponse;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+            this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        }
+
+        void onReadable() {
+            try {
+                if (bodyBuffer != null) {
+                    if (!bodyBuffer.hasRemaining()) {
+                        bodyBuffer = grow(bodyBuffer, bodyLength);
+                    }
+                    if (channel.read(bodyBuffer) < 0) {
+                        close();
+                        return;
+                    }
+                    lastActive = System.currentTimeMillis();
+                    if (bodyBuffer.position() == bodyLength) {
+                        // Never grown past bodyLength, so the array is exactly the body
+                        body = bodyBuffer.array();
+                        bodyBuffer = null;
+                        dispatch();
+                    }
+                    return;
+                }
+
+                if (in == null) {
+                    in = buffers.acquire();
+                }
+                int read = channel.read(in);
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                if (read > 0) {
+                    lastActive = System.currentTimeMillis();
+                    process();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Parse the next buffered request and dispatch it once its body has arrived
+         */
+        private void process() throws IOException {
+            if (in == null) {
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+
+            RequestHead parsed;
+            try {
+                parsed = RequestHead.parse(in, consumed, in.position());
+            } catch (IllegalArgumentException e) {
+                reject(400, e.getMessage());
+                return;
+            }
+
+            if (parsed == null) {
+                if (consumed == in.position()) {
+                    // Nothing buffered: give the buffer back while the connection is idle
+                    buffers.release(in);
+                    in = null;
+                    consumed = 0;
+                } else if (!in.hasRemaining()) {
+                    if (consumed == 0) {
+                        reject(431, "Request header fields too large");
+                        return;
+                    }
+                    // Move the partial request to the front to make room for the rest
+                    in.flip().position(consumed);
+                    in.compact();
+                    consumed = 0;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+
+            if (parsed.chunked()) {
+                reject(501, "Chunked request bodies are not supported");
+                return;
+            }
+            long contentLength = Math.max(0, parsed.contentLength());
+            if (contentLength > maxRequestBody) {
+                reject(413, "Request body too large");
+                return;
+            }
+
+            head = parsed;
+            int bodyStart = parsed.end();
+            int fromBuffer = (int) Math.min(contentLength, in.position() - bodyStart);
+            requestEnd = bodyStart + fromBuffer;
+
+            if (fromBuffer < contentLength) {
+                if (parsed.expectContinue()) {
+                    channel.write(ByteBuffer.wrap(CONTINUE));
+                }
+                // Allocate for what has arrived, not what Content-Length claims, so connections that
+                // send only headers cannot reserve maxRequestBody each
+                bodyLength = (int) contentLength;
+                bodyBuffer = ByteBuffer.allocate((int) Math.min(contentLength, Math.max(fromBuffer, bufferSize)));
+                bodyBuffer.put(in.slice(bodyStart, fromBuffer));
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            body = contentLength == 0 ? EMPTY : new byte[fromBuffer];
+            in.get(bodyStart, body, 0, fromBuffer);
+            dispatch();
+        }
+
+        private static ByteBuffer grow(ByteBuffer buffer, int maxCapacity) {
+            ByteBuffer larger = ByteBuffer.allocate((int) Math.min(maxCapacity, buffer.capacity() * 2L));
+            return larger.put(buffer.flip());
+        }
+
+        private void dispatch() {
+            busy = true;
+            key.interestOps(0);
+            activeExchanges.incrementAndGet();
+            NioHttpExchange exchange = new NioHttpExchange(NioServerEngine.this, this, head, body);
+            try {
+                executor.execute(() -> serve(exchange));
+            } catch (RejectedExecutionException e) {
+                // Over capacity with nowhere to queue even a rejection: drop the connection
+                finished(false);
+            } catch (RuntimeException e) {
+                log.warn("Could not dispatch request", e);
+                finished(false);
+            }
+        }
+
+        /**
+         * Called by the handler's thread once the response is complete
+         */
+        void finished(boolean keepAlive) {
+            closeAfterResponse = !keepAlive;
+            resumed.add(this);
+            selector.wakeup();
+        }
+
+        /**
+         * Back on the selector thread: close, or look for the next pipelined request
+         */
+        void resume() {
+            busy = false;
+            activeExchanges.decrementAndGet();
+            head = null;
+            body = null;
+            lastActive = System.currentTimeMillis();
+            if (closeAfterResponse || !accepting) {
+                close();
+                return;
+            }
+
+            consumed = requestEnd;
+            try {
+                process();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Write all buffers, waiting (on the caller's thread) while the socket is not writable
+         */
+        void write(ByteBuffer... data) throws IOException {
+            long remaining = 0;
+            for (ByteBuffer buffer : data) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                long written = channel.write(data);
+                remaining -= written;
+                if (written == 0) {
+                    awaitWritable();
+                }
+            }
+        }
+
+        /**
+         * Copy the file region to the socket in the kernel, waiting for the socket like write
+         */
+        void transferFrom(FileChannel file, long position, long count) throws IOException {
+            long end = position + count;
+            while (position < end) {
+                long sent = file.transferTo(position, end - position, channel);
+                if (sent == 0) {
+                    if (position >= file.size()) {
+                        throw new IOException("File truncated during transfer");
+                    }
+                    awaitWritable();
+                }
+                position += sent;
+            }
+        }
+
+        private void awaitWritable() throws IOException {
+            Selector writeSelector = writeSelectors.poll();
+            if (writeSelector == null) {
+                writeSelector = Selector.open();
+            }
+            SelectionKey writeKey;
+            try {
+                writeKey = channel.register(writeSelector, SelectionKey.OP_WRITE);
+            } catch (ClosedChannelException e) {
+                writeSelectors.offer(writeSelector);
+                throw e;
+            }
+            try {
+                if (writeSelector.select(writeTimeoutMillis) == 0) {
+                    throw new IOException("Write timed out after " + writeTimeoutMillis + " ms");
+                }
+            } finally {
+                writeKey.cancel();
+                // Flush the cancelled key so the selector can be reused for another channel
+                writeSelector.selectNow();
+                writeSelector.selectedKeys().clear();
+                writeSelectors.offer(writeSelector);
+            }
+        }
+
+        /**
+         * Answer a request that cannot be served and close the connection
+         */
+        private void reject(int status, String reason) {
+            byte[] message = ("{\"error\":\"" + reason + "\"}").getBytes(StandardCharsets.UTF_8);
+            byte[] response = ("HTTP/1.1 " + status + " " + NioHttpExchange.reasonPhrase(status) + "\r\n"
+                    + "Content-Type: application/json; charset=utf-8\r\n"
+                    + "Content-Length: " + message.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            try {
+                // Best effort from the selector thread: no waiting for a slow client
+                channel.write(new ByteBuffer[]{ByteBuffer.wrap(response), ByteBuffer.wrap(message)});
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+            close();
+        }
+
+        void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+            openConnections.decrementAndGet();
+            if (in != null && !busy) {
+                buffers.release(in);
+                in = null;
+            }
+        }
+    }
+
+    /**
+     * Context registered on the NIO engine; getServer() is null since there is no HttpServer
+     */
+    static final class NioContext extends HttpContext {
+        private final String path;
+        private HttpHandler handler;
+        private final List<Filter> filters = new ArrayList<>();
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private Authenticator authenticator;
+
+        NioContext(String path, HttpHandler handler) {
+            this.path = path;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            Authenticator previous = authenticator;
+            authenticator = auth;
+            return previous;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package http;
+
+import com.google.common.cache.CacheBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket limits for individual routes, either shared by all clients or one bucket per
+ * client address. Configured with groups of http.rateLimit.&lt;name&gt;.* keys:
+ * <pre>
+ * http.rateLimit.listUsers.route=GET /api/users
+ * http.rateLimit.listUsers.rate=20
+ * http.rateLimit.listUsers.burst=40
+ * http.rateLimit.listUsers.perClient=false
+ * </pre>
+ * The route is the method and full mapping pattern as printed in the router's route report.
+ */
+public final class RateLimits {
+    private static final String PREFIX = "http.rateLimit.";
+    // Per-client buckets kept; past this the least recently used are dropped
+    private static final int MAX_CLIENTS = 10_000;
+
+    /**
+     * @param ratePerSecond sustained requests per second
+     * @param burst requests allowed at once on top of the rate
+     * @param perClient one bucket per client address instead of one for the route
+     */
+    public record Limit(double ratePerSecond, int burst, boolean perClient) {
+    }
+
+    private final Map<String, Limit> limits;
+
+    public RateLimits(Map<String, Limit> limits) {
+        this.limits = Map.copyOf(limits);
+    }
+
+    public static RateLimits fromProperties(Properties props) {
+        Map<String, Limit> limits = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (!key.startsWith(PREFIX) || !key.endsWith(".route")) {
+                continue;
+            }
+            String group = key.substring(0, key.length() - "route".length());
+            String route = props.getProperty(key).trim().replaceAll("\\s+", " ");
+            double rate = Double.parseDouble(props.getProperty(group + "rate", "0"));
+            int burst = Integer.parseInt(props.getProperty(group + "burst", String.valueOf(Math.max(1, (int) Math.ceil(rate)))));
+            boolean perClient = Boolean.parseBoolean(props.getProperty(group + "perClient", "false"));
+            if (limits.put(route, new Limit(rate, burst, perClient)) != null) {
+                throw new IllegalArgumentException("Duplicate rate limit for " + route);
+            }
+        }
+        return new RateLimits(limits);
+    }
+
+    public boolean isEmpty() {
+        return limits.isEmpty();
+    }
+
+    /**
+     * Limits keyed by "METHOD /pattern"
+     */
+    public Map<String, Limit> limits() {
+        return limits;
+    }
+
+    /**
+     * Limiter for one route, created when the limits are applied to a router
+     */
+    static final class RouteLimiter {
+        private final Limit limit;
+        private final TokenBucket shared;
+        private final Map<String, TokenBucket> clients;
+
+        RouteLimiter(Limit limit) {
+            this.limit = limit;
+            this.shared = limit.perClient() ? null : new TokenBucket(limit.ratePerSecond(), limit.burst());
+            // A bucket left alone for its refill time is full again, so expiring it then loses
+            // nothing; eviction and expiry are amortized over cache operations, never a full scan
+            long refillNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) * limit.burst() / limit.ratePerSecond()));
+            this.clients = limit.perClient()
+                    ? CacheBuilder.newBuilder()
+                            .maximumSize(MAX_CLIENTS)
+                            .expireAfterAccess(refillNanos, TimeUnit.NANOSECONDS)
+                            .<String, TokenBucket>build()
+                            .asMap()
+                    : null;
+        }
+
+        /**
+         * @return 0 if the request may proceed, otherwise nanoseconds until it would be allowed
+         */
+        long tryAcquire(InetSocketAddress remote) {
+            if (shared != null) {
+                return shared.tryAcquire();
+            }
+            String client = remote == null || remote.getAddress() == null ? "unknown" : remote.getAddress().getHostAddress();
+            TokenBucket bucket = clients.get(client);
+            if (bucket == null) {
+                bucket = clients.computeIfAbsent(client, c -> new TokenBucket(limit.ratePerSecond(), limit.burst()));
+            }
+            return bucket.tryAcquire();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package http;
+
+import com.sun.net.httpserver.Headers;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Request line and headers parsed in place from a connection's read buffer.
+ * Only the method and target become Strings up front; header names and values are kept as
+ * offsets into the buffer and decoded into {@link Headers} on first use. The handful of
+ * headers the engine itself needs are matched as bytes. The buffer must not be modified
+ * while the request is being served.
+ */
+final class RequestHead {
+    private static final byte[] CONTENT_LENGTH = ascii("content-length");
+    private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+    private static final byte[] CONNECTION = ascii("connection");
+    private static final byte[] EXPECT = ascii("expect");
+    private static final byte[] CLOSE = ascii("close");
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+    private static final byte[] CONTINUE = ascii("100-continue");
+    private static final byte[] HTTP_1_1 = ascii("HTTP/1.1");
+    private static final byte[] HTTP_1_0 = ascii("HTTP/1.0");
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS"};
+    private static final byte[][] METHOD_BYTES = Arrays.stream(METHODS).map(RequestHead::ascii).toArray(byte[][]::new);
+
+    private final ByteBuffer buffer;
+    private final String method;
+    private final String target;
+    private final URI uri;
+    private final boolean http11;
+    private final int end;
+    // nameStart, nameEnd, valueStart, valueEnd for each header line
+    private int[] headerOffsets = new int[32];
+    private int headerCount;
+    private long contentLength = -1;
+    private boolean chunked;
+    private boolean connectionClose;
+    private boolean connectionKeepAlive;
+    private boolean expectContinue;
+    private Headers headers;
+
+    private RequestHead(ByteBuffer buffer, String method, String target, URI uri, boolean http11, int end) {
+        this.buffer = buffer;
+        this.method = method;
+        this.target = target;
+        this.uri = uri;
+        this.http11 = http11;
+        this.end = end;
+    }
+
+    /**
+     * Parse the request starting at start if its head is complete before limit
+     * @return the head, or null if more bytes are needed
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    static RequestHead parse(ByteBuffer buffer, int start, int limit) {
+        // Tolerate empty lines between pipelined requests (RFC 9112 section 2.2)
+        while (start < limit && (buffer.get(start) == '\r' || buffer.get(start) == '\n')) {
+            start++;
+        }
+
+        int lineEnd = indexOf(buffer, start, limit, (byte) '\n');
+        if (lineEnd < 0) {
+            return null;
+        }
+        int headEnd = findHeadEnd(buffer, lineEnd + 1, limit);
+        if (headEnd < 0) {
+            return null;
+        }
+
+        int contentEnd = trimCr(buffer, start, lineEnd);
+        int firstSpace = indexOf(buffer, start, contentEnd, (byte) ' ');
+        int secondSpace = firstSpace < 0 ? -1 : indexOf(buffer, firstSpace + 1, contentEnd, (byte) ' ');
+        if (firstSpace <= start || secondSpace <= firstSpace + 1) {
+            throw new IllegalArgumentException("Malformed request line");
+        }
+
+        boolean http11;
+        if (regionEquals(buffer, secondSpace + 1, contentEnd, HTTP_1_1, false)) {
+            http11 = true;
+        } else if (regionEquals(buffer, secondSpace + 1, contentEnd, HTTP_1_0, false)) {
+            http11 = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported protocol version");
+        }
+
+        // Checked here, so a bad target is answered with 400 before it reaches a worker
+        String target = decode(buffer, firstSpace + 1, secondSpace);
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Malformed request target");
+        }
+
+        RequestHead head = new RequestHead(buffer, method(buffer, start, firstSpace), target, uri, http11, headEnd);
+        head.parseHeaders(lineEnd + 1, headEnd);
+        return head;
+    }
+
+    private void parseHeaders(int from, int headEnd) {
+        int lineStart = from;
+        while (lineStart < headEnd) {
+            int lineEnd = indexOf(buffer, lineStart, headEnd, (byte) '\n');
+            int contentEnd = trimCr(buffer, lineStart, lineEnd);
+            if (contentEnd == lineStart) {
+                break;
+            }
+
+            int colon = indexOf(buffer, lineStart, contentEnd, (byte) ':');
+            if (colon <= lineStart) {
+                throw new IllegalArgumentException("Malformed header line");
+            }
+            int valueStart = colon + 1;
+            while (valueStart < contentEnd && isWhitespace(buffer.get(valueStart))) {
+                valueStart++;
+            }
+            int valueEnd = contentEnd;
+            while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+                valueEnd--;
+            }
+
+            addHeader(lineStart, colon, valueStart, valueEnd);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void addHeader(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (regionEquals(buffer, nameStart, nameEnd, CONTENT_LENGTH, true)) {
+            long parsed = parseLength(valueStart, valueEnd);
+            if (contentLength >= 0 && contentLength != parsed) {
+                throw new IllegalArgumentException("Conflicting Content-Length headers");
+            }
+            contentLength = parsed;
+        } else if (regionEquals(buffer, nameStart, nameEnd, TRANSFER_ENCODING, true)) {
+            chunked = true;
+        } else if (regionEquals(buffer, nameStart, nameEnd, CONNECTION, true)) {
+            connectionClose |= containsToken(valueStart, valueEnd, CLOSE);
+            connectionKeepAlive |= containsToken(valueStart, valueEnd, KEEP_ALIVE);
+        } else if (regionEquals(buffer, nameStart, nameEnd, EXPECT, true)) {
+            expectContinue = regionEquals(buffer, valueStart, valueEnd, CONTINUE, true);
+        }
+
+        int offset = headerCount * 4;
+        if (offset == headerOffsets.length) {
+            headerOffsets = Arrays.copyOf(headerOffsets, headerOffsets.length * 2);
+        }
+        headerOffsets[offset] = nameStart;
+        headerOffsets[offset + 1] = nameEnd;
+        headerOffsets[offset + 2] = valueStart;
+        headerOffsets[offset + 3] = valueEnd;
+        headerCount++;
+    }
+
+    String method() {
+        return method;
+    }
+
+    String target() {
+        return target;
+    }
+
+    URI uri() {
+        return uri;
+    }
+
+    String protocol() {
+        return http11 ? "HTTP/1.1" : "HTTP/1.0";
+    }
+
+    /**
+     * Buffer offset just past the blank line ending the head, where the body starts
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * Declared body length, or -1 if there is none
+     */
+    long contentLength() {
+        return contentLength;
+    }
+
+    boolean chunked() {
+        return chunked;
+    }
+
+    boolean expectContinue() {
+        return expectContinue;
+    }
+
+    /**
+     * HTTP/1.1 connections persist unless closed explicitly; HTTP/1.0 ones only on request
+     */
+    boolean keepAlive() {
+        return http11 ? !connectionClose : connectionKeepAlive && !connectionClose;
+    }
+
+    /**
+     * Headers decoded from the buffer on first call
+     */
+    Headers headers() {
+        if (headers == null) {
+            Headers decoded = new Headers();
+            for (int i = 0; i < headerCount * 4; i += 4) {
+                decoded.add(decode(buffer, headerOffsets[i], headerOffsets[i + 1]),
+                        decode(buffer, headerOffsets[i + 2], headerOffsets[i + 3]));
+            }
+            headers = decoded;
+        }
+        return headers;
+    }
+
+    private long parseLength(int from, int to) {
+        if (from == to || to - from > 18) {
+            throw new IllegalArgumentException("Invalid Content-Length");
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("Invalid Content-Length");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private boolean containsToken(int from, int to, byte[] token) {
+        int tokenStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buffer.get(i) == ',') {
+                int s = tokenStart;
+                int e = i;
+                while (s < e && isWhitespace(buffer.get(s))) {
+                    s++;
+                }
+                while (e > s && isWhitespace(buffer.get(e - 1))) {
+                    e--;
+                }
+                if (regionEquals(buffer, s, e, token, true)) {
+                    return true;
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Offset just past the blank line ending the head, or -1 if it has not arrived yet
+     */
+    private static int findHeadEnd(ByteBuffer buffer, int from, int limit) {
+        int lineStart = from;
+        while (lineStart < limit) {
+            int lineEnd = indexOf(buffer, lineStart, limit, (byte) '\n');
+            if (lineEnd < 0) {
+                return -1;
+            }
+            if (trimCr(buffer, lineStart, lineEnd) == lineStart) {
+                return lineEnd + 1;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Well-known methods map to shared constants instead of new Strings
+     */
+    private static String method(ByteBuffer buffer, int from, int to) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (regionEquals(buffer, from, to, METHOD_BYTES[i], false)) {
+                return METHODS[i];
+            }
+        }
+        return decode(buffer, from, to);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimCr(ByteBuffer buffer, int lineStart, int lineEnd) {
+        return lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * Compare bytes with an ASCII constant; with ignoreCase the constant must be lower case
+     */
+    private static boolean regionEquals(ByteBuffer buffer, int from, int to, byte[] expected, boolean ignoreCase) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            byte b = buffer.get(from + i);
+            if (ignoreCase && b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,300 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip/deflate response encoding negotiated from Accept-Encoding.
+ * Bodies smaller than the threshold are sent as-is since compressing them costs more CPU
+ * than it saves bandwidth. Deflaters are pooled rather than allocated per response:
+ * each one holds native zlib buffers (~256KB) that are only released by end() or GC.
+ */
+public final class ResponseCompression {
+    public enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    // Fixed 10-byte gzip header: magic, CM=deflate, no flags, no mtime, no XFL, OS unknown
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int minSize;
+    private final int level;
+    private final BlockingQueue<Deflater> gzipDeflaters;
+    private final BlockingQueue<Deflater> zlibDeflaters;
+
+    /**
+     * @param minSize bodies with fewer bytes are not compressed
+     * @param level zlib level, 1 (fastest) to 9 (smallest)
+     */
+    public ResponseCompression(int minSize, int level) {
+        if (minSize < 0 || level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression config: minSize=" + minSize + ", level=" + level);
+        }
+        this.minSize = minSize;
+        this.level = level;
+        int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+        this.gzipDeflaters = new ArrayBlockingQueue<>(poolSize);
+        this.zlibDeflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    public static ResponseCompression defaults() {
+        return new ResponseCompression(1024, 6);
+    }
+
+    /**
+     * Read http.compression.minSize and http.compression.level; null when http.compression.enabled=false
+     */
+    public static ResponseCompression fromProperties(Properties props) {
+        if (!Boolean.parseBoolean(props.getProperty("http.compression.enabled", "true"))) {
+            return null;
+        }
+        return new ResponseCompression(
+                Integer.parseInt(props.getProperty("http.compression.minSize", "1024")),
+                Integer.parseInt(props.getProperty("http.compression.level", "6")));
+    }
+
+    /**
+     * Encoding to use for a body of the given size, or null to send it uncompressed.
+     * Use a negative size for streamed bodies whose length is not known up front.
+     */
+    public Encoding negotiate(HttpExchange exchange, long size) {
+        if (size >= 0 && size < minSize) {
+            return null;
+        }
+        return negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    /**
+     * Pick gzip or deflate from an Accept-Encoding header, honouring q-values (q=0 refuses a coding)
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String coding = part;
+            double q = 1;
+            int semicolon = part.indexOf(';');
+            if (semicolon >= 0) {
+                coding = part.substring(0, semicolon);
+                q = qValue(part.substring(semicolon + 1));
+            }
+            coding = coding.trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                gzip = q;
+            } else if (coding.equalsIgnoreCase("deflate")) {
+                deflate = q;
+            } else if (coding.equals("*")) {
+                wildcard = q;
+            }
+        }
+
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+        // gzip wins ties: some clients mishandle raw vs zlib-wrapped "deflate"
+        if (gzip > 0 && gzip >= deflate) {
+            return Encoding.GZIP;
+        }
+        return deflate > 0 ? Encoding.DEFLATE : null;
+    }
+
+    private static double qValue(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Compress a complete body; the buffer's position is left unchanged
+     */
+    public byte[] compress(Encoding encoding, ByteBuffer body) {
+        int length = body.remaining();
+        Deflater deflater = borrow(encoding);
+        try {
+            deflater.setInput(body.duplicate());
+            deflater.finish();
+
+            int headerSize = encoding == Encoding.GZIP ? GZIP_HEADER.length : 0;
+            int trailerSize = encoding == Encoding.GZIP ? 8 : 0;
+            byte[] out = new byte[headerSize + Math.max(64, length / 4) + trailerSize];
+            if (encoding == Encoding.GZIP) {
+                System.arraycopy(GZIP_HEADER, 0, out, 0, headerSize);
+            }
+
+            int count = headerSize;
+            while (!deflater.finished()) {
+                if (count + trailerSize == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                count += deflater.deflate(out, count, out.length - count - trailerSize);
+            }
+
+            if (encoding == Encoding.GZIP) {
+                CRC32 crc = new CRC32();
+                crc.update(body.duplicate());
+                writeIntLE(out, count, (int) crc.getValue());
+                writeIntLE(out, count + 4, length);
+                count += trailerSize;
+            }
+            return count == out.length ? out : Arrays.copyOf(out, count);
+        } finally {
+            giveBack(encoding, deflater);
+        }
+    }
+
+    /**
+     * Wrap a response stream so everything written to it is compressed; close() finishes the
+     * encoding and closes the underlying stream
+     */
+    public OutputStream wrap(Encoding encoding, OutputStream out) throws IOException {
+        return new CompressingStream(encoding, out);
+    }
+
+    private Deflater borrow(Encoding encoding) {
+        Deflater deflater = pool(encoding).poll();
+        if (deflater == null) {
+            // GZIP is written as raw deflate data framed by our own header and trailer
+            deflater = new Deflater(level, encoding == Encoding.GZIP);
+        }
+        return deflater;
+    }
+
+    private void giveBack(Encoding encoding, Deflater deflater) {
+        deflater.reset();
+        if (!pool(encoding).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private BlockingQueue<Deflater> pool(Encoding encoding) {
+        return encoding == Encoding.GZIP ? gzipDeflaters : zlibDeflaters;
+    }
+
+    private static void writeIntLE(byte[] out, int offset, int value) {
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+        out[offset + 2] = (byte) (value >>> 16);
+        out[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private final class CompressingStream extends FilterOutputStream {
+        private final Encoding encoding;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private long length;
+        private boolean closed;
+
+        CompressingStream(Encoding encoding, OutputStream out) throws IOException {
+            super(out);
+            this.encoding = encoding;
+            this.deflater = borrow(encoding);
+            if (encoding == Encoding.GZIP) {
+                out.write(GZIP_HEADER);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return;
+            }
+            crc.update(b, off, len);
+            length += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        /**
+         * Sync-flush so clients can start parsing what has been written so far
+         */
+        @Override
+        public void flush() throws IOException {
+            if (!closed) {
+                drain(Deflater.SYNC_FLUSH);
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer, 0, buffer.length);
+                    out.write(buffer, 0, n);
+                }
+                if (encoding == Encoding.GZIP) {
+                    byte[] trailer = new byte[8];
+                    writeIntLE(trailer, 0, (int) crc.getValue());
+                    writeIntLE(trailer, 4, (int) length);
+                    out.write(trailer);
+                }
+            } finally {
+                giveBack(encoding, deflater);
+                out.close();
+            }
+        }
+
+        private void drain(int flushMode) throws IOException {
+            int n;
+            do {
+                n = deflater.deflate(buffer, 0, buffer.length, flushMode);
+                if (n > 0) {
+                    out.write(buffer, 0, n);
+                }
+            } while (n == buffer.length);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A single controller route: HTTP method, path pattern, the handler method and
+ * the invoker compiled for it when the route table is built.
+ */
+public final class Route {
+    private final String httpMethod;
+    private final String pattern;
+    private final Method handler;
+    private final RouteInvoker invoker;
+    private final boolean noContent;
+
+    public Route(String httpMethod, String pattern, Method handler, RouteInvoker invoker) {
+        this.httpMethod = httpMethod;
+        this.pattern = pattern;
+        this.handler = handler;
+        this.invoker = invoker;
+        this.noContent = handler.getReturnType() == void.class || isFutureOfVoid(handler);
+    }
+
+    public String httpMethod() {
+        return httpMethod;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    public Method handler() {
+        return handler;
+    }
+
+    /**
+     * True if the handler has no result to send (void, or a future of Void), so the route answers 204
+     */
+    public boolean noContent() {
+        return noContent;
+    }
+
+    /**
+     * Bind the arguments for a matched request and call the controller method
+     */
+    public Object invoke(HttpExchange exchange, RouteTable.Match match) throws Exception {
+        return invoker.invoke(exchange, match);
+    }
+
+    private static boolean isFutureOfVoid(Method handler) {
+        return CompletionStage.class.isAssignableFrom(handler.getReturnType())
+                && handler.getGenericReturnType() instanceof ParameterizedType type
+                && type.getActualTypeArguments()[0] == Void.class;
+    }
+
+    @Override
+    public String toString() {
+        return httpMethod + " " + pattern + " -> " + handler.getDeclaringClass().getSimpleName() + "." + handler.getName();
+    }
+}
@@ -0,0 +1,67 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Typed invoker for a controller method, compiled once into a single MethodHandle chain.
+ * Each argument binder is a handle of type (HttpExchange, Match)P that is folded into the
+ * controller call, so primitive path variables reach the method without boxing and the
+ * whole call is a direct, inlinable invocation.
+ */
+public final class RouteInvoker {
+    private static final MethodType INVOKER_TYPE =
+            MethodType.methodType(Object.class, HttpExchange.class, RouteTable.Match.class);
+
+    private final MethodHandle handle;
+
+    private RouteInvoker(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Compile an invoker for a controller method and its argument binders
+     * @param binders one handle of type (HttpExchange, Match)P per method parameter
+     */
+    public static RouteInvoker create(MethodHandles.Lookup lookup, Object controller, Method method,
+                                      MethodHandle[] binders) {
+        try {
+            MethodHandle target = lookup.unreflect(method).bindTo(controller);
+
+            // Replace every parameter with its (exchange, match) binder, from the right so indexes stay valid
+            for (int i = binders.length - 1; i >= 0; i--) {
+                target = MethodHandles.collectArguments(target, i, binders[i]);
+            }
+
+            // Collapse the repeated (exchange, match) pairs into a single pair
+            int[] reorder = new int[binders.length * 2];
+            for (int i = 0; i < reorder.length; i++) {
+                reorder[i] = i % 2;
+            }
+            MethodType pairType = INVOKER_TYPE.changeReturnType(target.type().returnType());
+            target = MethodHandles.permuteArguments(target, pairType, reorder);
+
+            if (target.type().returnType() == void.class) {
+                target = MethodHandles.filterReturnValue(target, MethodHandles.constant(Object.class, null));
+            }
+            return new RouteInvoker(target.asType(INVOKER_TYPE));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access controller method " + method, e);
+        }
+    }
+
+    public Object invoke(HttpExchange exchange, RouteTable.Match match) throws Exception {
+        try {
+            return (Object) handle.invokeExact(exchange, match);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+}
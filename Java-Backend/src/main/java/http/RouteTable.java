@@ -0,0 +1,210 @@
+package http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable route table built once at startup.
+ * Each HTTP method has its own segment trie with literal and {var} nodes, so a request
+ * path is matched in one pass over its segments without regex or reflection.
+ */
+public final class RouteTable {
+    private final Map<String, Node> roots;
+    private final List<Route> routes;
+    private final int maxVariables;
+
+    private RouteTable(Map<String, Node> roots, List<Route> routes, int maxVariables) {
+        this.roots = roots;
+        this.routes = routes;
+        this.maxVariables = maxVariables;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Find the route for a method and path, or null if nothing matches.
+     * Literal segments take precedence over path variables.
+     */
+    public Match match(String httpMethod, String path) {
+        Node root = roots.get(httpMethod);
+        if (root == null) {
+            return null;
+        }
+
+        String[] values = new String[maxVariables];
+        Route route = root.find(path, skipSlashes(path, 0), values, 0);
+        return route == null ? null : new Match(route, values);
+    }
+
+    /**
+     * All registered routes in registration order
+     */
+    public List<Route> routes() {
+        return routes;
+    }
+
+    /**
+     * Result of a successful lookup: the route and the captured path variable values
+     */
+    public static final class Match {
+        private final Route route;
+        private final String[] values;
+
+        Match(Route route, String[] values) {
+            this.route = route;
+            this.values = values;
+        }
+
+        public Route route() {
+            return route;
+        }
+
+        /**
+         * Value of the path variable at the given position in the pattern
+         */
+        public String variable(int index) {
+            return values[index];
+        }
+    }
+
+    /**
+     * Split a path pattern into its non-empty segments
+     */
+    static String[] split(String path) {
+        List<String> segments = new ArrayList<>();
+        int pos = skipSlashes(path, 0);
+        while (pos < path.length()) {
+            int end = segmentEnd(path, pos);
+            segments.add(path.substring(pos, end));
+            pos = skipSlashes(path, end);
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * Names of the {var} segments of a pattern, in order
+     */
+    static List<String> variableNames(String pattern) {
+        List<String> names = new ArrayList<>();
+        for (String segment : split(pattern)) {
+            if (isVariable(segment)) {
+                names.add(segment.substring(1, segment.length() - 1));
+            }
+        }
+        return names;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    private static int skipSlashes(String path, int pos) {
+        while (pos < path.length() && path.charAt(pos) == '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int segmentEnd(String path, int pos) {
+        int end = path.indexOf('/', pos);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static final class Node {
+        private String[] literalKeys = new String[0];
+        private Node[] literalChildren = new Node[0];
+        private Node variableChild;
+        private Route route;
+
+        private Route find(String path, int pos, String[] values, int depth) {
+            if (pos >= path.length()) {
+                return route;
+            }
+
+            int end = segmentEnd(path, pos);
+            int length = end - pos;
+            int next = skipSlashes(path, end);
+
+            for (int i = 0; i < literalKeys.length; i++) {
+                String key = literalKeys[i];
+                if (key.length() == length && path.regionMatches(pos, key, 0, length)) {
+                    Route found = literalChildren[i].find(path, next, values, depth);
+                    if (found != null) {
+                        return found;
+                    }
+                    break;
+                }
+            }
+
+            if (variableChild != null) {
+                Route found = variableChild.find(path, next, values, depth + 1);
+                if (found != null) {
+                    values[depth] = path.substring(pos, end);
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        private Node literal(String key) {
+            for (int i = 0; i < literalKeys.length; i++) {
+                if (literalKeys[i].equals(key)) {
+                    return literalChildren[i];
+                }
+            }
+            Node child = new Node();
+            int n = literalKeys.length;
+            literalKeys = Arrays.copyOf(literalKeys, n + 1);
+            literalChildren = Arrays.copyOf(literalChildren, n + 1);
+            literalKeys[n] = key;
+            literalChildren[n] = child;
+            return child;
+        }
+
+        private Node variable() {
+            if (variableChild == null) {
+                variableChild = new Node();
+            }
+            return variableChild;
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, Node> roots = new HashMap<>();
+        private final List<Route> routes = new ArrayList<>();
+        private int maxVariables;
+
+        private Builder() {
+        }
+
+        public Builder add(Route route) {
+            Node node = roots.computeIfAbsent(route.httpMethod(), m -> new Node());
+            int variables = 0;
+            for (String segment : split(route.pattern())) {
+                if (isVariable(segment)) {
+                    node = node.variable();
+                    variables++;
+                } else {
+                    node = node.literal(segment);
+                }
+            }
+
+            if (node.route != null) {
+                throw new IllegalStateException("Ambiguous mapping: " + route + " conflicts with " + node.route);
+            }
+            node.route = route;
+            routes.add(route);
+            maxVariables = Math.max(maxVariables, variables);
+            return this;
+        }
+
+        public RouteTable build() {
+            return new RouteTable(Map.copyOf(roots), List.copyOf(routes), maxVariables);
+        }
+    }
+}
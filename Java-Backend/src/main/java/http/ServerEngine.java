@@ -0,0 +1,33 @@
+package http;
+
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * HTTP server that handlers are mounted on, selected with http.engine (jdk | nio).
+ * Handlers receive a regular HttpExchange whichever engine runs them, so routers and
+ * filters work unchanged on both.
+ */
+public interface ServerEngine {
+    /**
+     * Mount a handler under a path prefix; the longest matching prefix wins
+     */
+    void createContext(String path, HttpHandler handler);
+
+    void start() throws IOException;
+
+    /**
+     * Stop accepting connections, giving exchanges in progress up to delaySeconds to finish
+     */
+    void stop(int delaySeconds);
+
+    InetSocketAddress address();
+
+    /**
+     * Executor handlers run on, usually an {@link AdmissionControlledExecutor}
+     */
+    Executor executor();
+}
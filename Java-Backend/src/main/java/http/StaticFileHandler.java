@@ -0,0 +1,316 @@
+package http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves GET and HEAD for the files under a directory, e.g. exported JSON snapshots and assets.
+ * Small files come from an off-heap {@link FileBufferCache}; larger ones are sent with
+ * FileChannel.transferTo, which on the NIO engine goes from the page cache to the socket without
+ * passing through the heap (the JDK server only offers an OutputStream, so there it is one copy).
+ * Every response carries Last-Modified and an ETag made of the size and modification time;
+ * If-None-Match and If-Modified-Since are answered with 304, and a single byte range (subject
+ * to If-Range) with 206.
+ */
+public class StaticFileHandler implements HttpHandler {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+    private static final long[] UNSATISFIABLE = new long[0];
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "text/javascript; charset=utf-8"),
+            Map.entry("json", "application/json; charset=utf-8"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("csv", "text/csv; charset=utf-8"),
+            Map.entry("xml", "application/xml"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("wasm", "application/wasm"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("gz", "application/gzip"),
+            Map.entry("zip", "application/zip"));
+
+    private final Path root;
+    private final StaticFilesConfig config;
+    private final FileBufferCache cache;
+
+    /**
+     * @throws IOException if the directory does not exist
+     */
+    public StaticFileHandler(StaticFilesConfig config) throws IOException {
+        this.root = config.directory().toRealPath();
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Static files directory is not a directory: " + root);
+        }
+        this.config = config;
+        this.cache = config.cacheMaxBytes() > 0 && config.cacheMaxFileBytes() > 0
+                ? new FileBufferCache(config.cacheMaxFileBytes(), config.cacheMaxBytes())
+                : null;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().add("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Path file = resolve(exchange);
+            BasicFileAttributes attributes = file != null ? Files.readAttributes(file, BasicFileAttributes.class) : null;
+            if (attributes == null || !attributes.isRegularFile()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            serve(exchange, file, attributes);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange, Path file, BasicFileAttributes attributes) throws IOException {
+        long size = attributes.size();
+        long modifiedMillis = attributes.lastModifiedTime().toMillis();
+        // HTTP dates have second precision; the ETag keeps the milliseconds
+        long modifiedSeconds = Math.floorDiv(modifiedMillis, 1000);
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(modifiedMillis) + "\"";
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Last-Modified", HTTP_DATE.format(Instant.ofEpochSecond(modifiedSeconds).atZone(ZoneOffset.UTC)));
+        headers.set("Cache-Control", "max-age=" + config.maxAgeSeconds());
+        headers.set("Accept-Ranges", "bytes");
+        if (notModified(exchange, etag, modifiedSeconds)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        headers.set("Content-Type", contentType(file));
+
+        int status = 200;
+        long start = 0;
+        long length = size;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && ifRangeMatches(exchange, etag, modifiedSeconds)) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == UNSATISFIABLE) {
+                headers.set("Content-Range", "bytes */" + size);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            if (bounds != null) {
+                status = 206;
+                start = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                headers.set("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+            }
+        }
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            // Both engines take the length a GET would have as a header, with no body
+            headers.set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        if (length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        if (cache != null && cache.accepts(size)) {
+            // Load before the headers go out, so a file changing underneath still gets an error status
+            ByteBuffer content = cache.get(file, size, modifiedMillis).slice((int) start, (int) length);
+            exchange.sendResponseHeaders(status, length);
+            if (exchange instanceof NioHttpExchange nio) {
+                nio.write(content);
+            } else {
+                WritableByteChannel out = Channels.newChannel(exchange.getResponseBody());
+                while (content.hasRemaining()) {
+                    out.write(content);
+                }
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            exchange.sendResponseHeaders(status, length);
+            if (exchange instanceof NioHttpExchange nio) {
+                nio.transferFrom(channel, start, length);
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(exchange.getResponseBody());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent == 0) {
+                    throw new IOException("File truncated during transfer: " + file);
+                }
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * The file the request path names under the root (index.html for a directory), or null if
+     * the path is malformed or leads outside the root, directly or through a symlink
+     */
+    private Path resolve(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String contextPath = exchange.getHttpContext().getPath();
+        String relative = path.substring(Math.min(contextPath.length(), path.length()));
+        // Contexts match by string prefix, so /static also receives /staticfoo
+        if (!relative.isEmpty() && !relative.startsWith("/") && !contextPath.endsWith("/")) {
+            return null;
+        }
+        while (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+
+        try {
+            Path file = root.resolve(relative).normalize();
+            if (!file.startsWith(root)) {
+                return null;
+            }
+            if (Files.isDirectory(file)) {
+                file = file.resolve("index.html");
+            }
+            file = file.toRealPath();
+            return file.startsWith(root) ? file : null;
+        } catch (InvalidPathException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * If-None-Match (weak comparison) wins over If-Modified-Since, as RFC 9110 requires
+     */
+    private static boolean notModified(HttpExchange exchange, String etag, long modifiedSeconds) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (ifNoneMatch.trim().equals("*")) {
+                return true;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        Long since = parseDate(exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+        return since != null && modifiedSeconds <= since;
+    }
+
+    /**
+     * A Range is only honoured if If-Range, when present, still names this version of the file
+     * (strong comparison for tags, exact match for dates); otherwise the whole file is sent
+     */
+    private static boolean ifRangeMatches(HttpExchange exchange, String etag, long modifiedSeconds) {
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"")) {
+            return value.equals(etag);
+        }
+        Long date = parseDate(value);
+        return date != null && date == modifiedSeconds;
+    }
+
+    /**
+     * First and last byte of a single "bytes=" range clipped to the file, null to ignore the
+     * header (malformed, or several ranges, for which sending the whole file is allowed), or
+     * UNSATISFIABLE if it starts past the end
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return suffix == 0 ? UNSATISFIABLE : null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = size - 1;
+                if (!last.isEmpty()) {
+                    long lastByte = Long.parseLong(last);
+                    if (lastByte < start) {
+                        return null;
+                    }
+                    end = Math.min(lastByte, end);
+                }
+            }
+            return start >= size ? UNSATISFIABLE : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Epoch seconds of an HTTP date, or null if absent or unparseable
+     */
+    private static Long parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), HTTP_DATE).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+}
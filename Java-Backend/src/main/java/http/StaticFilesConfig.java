@@ -0,0 +1,44 @@
+package http;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Static file serving, see {@link StaticFileHandler}
+ * @param directory files are served from here; nothing outside it is reachable
+ * @param urlPath context path the directory is mounted at, e.g. /static
+ * @param maxAgeSeconds Cache-Control max-age sent with files (0 to make clients revalidate every time)
+ * @param cacheMaxFileBytes files up to this size are kept in the off-heap cache
+ * @param cacheMaxBytes total size of cached files before the least recently used are evicted (0 disables the cache)
+ */
+public record StaticFilesConfig(Path directory,
+                                String urlPath,
+                                long maxAgeSeconds,
+                                int cacheMaxFileBytes,
+                                long cacheMaxBytes) {
+
+    public StaticFilesConfig {
+        if (directory == null || urlPath == null || !urlPath.startsWith("/") || maxAgeSeconds < 0
+                || cacheMaxFileBytes < 0 || cacheMaxBytes < 0) {
+            throw new IllegalArgumentException("Invalid static files config: directory=" + directory + ", urlPath=" + urlPath
+                    + ", maxAgeSeconds=" + maxAgeSeconds + ", cacheMaxFileBytes=" + cacheMaxFileBytes
+                    + ", cacheMaxBytes=" + cacheMaxBytes);
+        }
+    }
+
+    /**
+     * Read http.static.* keys, or null when http.static.enabled is not true
+     */
+    public static StaticFilesConfig fromProperties(Properties props) {
+        if (!Boolean.parseBoolean(props.getProperty("http.static.enabled", "false"))) {
+            return null;
+        }
+        return new StaticFilesConfig(
+                Path.of(props.getProperty("http.static.directory", "public")),
+                props.getProperty("http.static.urlPath", "/static"),
+                Long.parseLong(props.getProperty("http.static.maxAgeSeconds", "3600")),
+                Integer.parseInt(props.getProperty("http.static.cache.maxFileBytes", "65536")),
+                Long.parseLong(props.getProperty("http.static.cache.maxBytes", "33554432"))
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package infrastructure.cache;
+
+import java.util.Properties;
+
+/**
+ * Entity cache settings
+ * @param maximumSize entries kept before the least recently used ones are evicted
+ * @param ttlMillis entries are reloaded this long after they were written
+ * @param cacheMissing whether lookups that found nothing are cached too (negative caching)
+ */
+public record CacheConfig(long maximumSize, long ttlMillis, boolean cacheMissing) {
+
+    public CacheConfig {
+        if (maximumSize < 0 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Invalid cache config: maximumSize=" + maximumSize + ", ttlMillis=" + ttlMillis);
+        }
+    }
+
+    public static CacheConfig defaults() {
+        return new CacheConfig(10_000, 60_000, true);
+    }
+
+    /**
+     * Read &lt;prefix&gt;.maximumSize, .ttlMillis and .cacheMissing, falling back to the defaults
+     */
+    public static CacheConfig fromProperties(Properties props, String prefix) {
+        CacheConfig d = defaults();
+        return new CacheConfig(
+                Long.parseLong(props.getProperty(prefix + ".maximumSize", String.valueOf(d.maximumSize()))),
+                Long.parseLong(props.getProperty(prefix + ".ttlMillis", String.valueOf(d.ttlMillis()))),
+                Boolean.parseBoolean(props.getProperty(prefix + ".cacheMissing", String.valueOf(d.cacheMissing())))
+        );
+    }
+}
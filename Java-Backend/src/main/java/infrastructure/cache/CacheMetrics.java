@@ -0,0 +1,20 @@
+package infrastructure.cache;
+
+/**
+ * Point-in-time view of an entity cache
+ * @param loads lookups that went to the backing store (concurrent misses for one key count once)
+ * @param loadFailures loads that threw, or that overlapped a write and were not cached
+ * @param evictions entries dropped for size or expiry, not explicit invalidations
+ */
+public record CacheMetrics(long size,
+                           long hits,
+                           long misses,
+                           long loads,
+                           long loadFailures,
+                           long evictions) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
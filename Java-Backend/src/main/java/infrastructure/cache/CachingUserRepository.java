@@ -0,0 +1,105 @@
+package infrastructure.cache;
+
+import domain.common.Page;
+import domain.user.User;
+import ports.user.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * UserRepository decorator that serves findBydId from an EntityCache.
+ * Writes go to the delegate first and then update the cache; listings are not cached.
+ * Only writes made through this decorator are seen: a row changed elsewhere is served stale
+ * until its entry expires.
+ */
+public class CachingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final EntityCache<Long, User> cache;
+
+    public CachingUserRepository(UserRepository delegate, CacheConfig config) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(config);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Page<User> findPage(long after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findPage(long after, int limit, List<String> fields) {
+        return delegate.findPage(after, limit, fields);
+    }
+
+    @Override
+    public Optional<User> findBydId(long id) {
+        return cache.get(id, delegate::findBydId);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findByNameContaining(String namePattern) {
+        return delegate.findByNameContaining(namePattern);
+    }
+
+    @Override
+    public User save(User user) {
+        User saved = delegate.save(user);
+        cache.put(saved.id(), saved);
+        return saved;
+    }
+
+    @Override
+    public List<User> saveAll(Collection<User> users) {
+        List<User> saved = delegate.saveAll(users);
+        for (User user : saved) {
+            cache.put(user.id(), user);
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean updateFields(long id, Map<String, Object> fields) {
+        try {
+            return delegate.updateFields(id, fields);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public boolean deleteById(long id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    public CacheMetrics cacheMetrics() {
+        return cache.metrics();
+    }
+}
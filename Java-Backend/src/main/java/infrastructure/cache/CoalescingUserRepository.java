@@ -0,0 +1,104 @@
+package infrastructure.cache;
+
+import domain.common.Page;
+import domain.user.User;
+import ports.user.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * UserRepository decorator that collapses concurrent findBydId calls for the same id into one
+ * query, for deployments without the entity cache (which already shares loads on a miss).
+ * Writes detach the lookup in flight for their id, so a read that starts after a write never
+ * gets a result fetched before it.
+ */
+public class CoalescingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final SingleFlight<Long, Optional<User>> lookups = new SingleFlight<>();
+
+    public CoalescingUserRepository(UserRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Page<User> findPage(long after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findPage(long after, int limit, List<String> fields) {
+        return delegate.findPage(after, limit, fields);
+    }
+
+    @Override
+    public Optional<User> findBydId(long id) {
+        return lookups.load(id, delegate::findBydId);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findByNameContaining(String namePattern) {
+        return delegate.findByNameContaining(namePattern);
+    }
+
+    @Override
+    public User save(User user) {
+        User saved = delegate.save(user);
+        lookups.forget(saved.id());
+        return saved;
+    }
+
+    @Override
+    public List<User> saveAll(Collection<User> users) {
+        List<User> saved = delegate.saveAll(users);
+        for (User user : saved) {
+            lookups.forget(user.id());
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean updateFields(long id, Map<String, Object> fields) {
+        try {
+            return delegate.updateFields(id, fields);
+        } finally {
+            lookups.forget(id);
+        }
+    }
+
+    @Override
+    public boolean deleteById(long id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            lookups.forget(id);
+        }
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    public long coalescedCount() {
+        return lookups.coalescedCount();
+    }
+}
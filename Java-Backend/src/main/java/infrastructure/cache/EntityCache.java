@@ -0,0 +1,125 @@
+package infrastructure.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring read-through cache for entities looked up by id.
+ * Concurrent misses for the same key share a single load, and absent entities are cached
+ * as Optional.empty() (unless disabled) so repeated lookups of missing ids stay off the database.
+ * <p>
+ * Guava's invalidate does not cancel a load already in flight, so every write also bumps a
+ * generation for its key (striped: keys sharing a stripe only cost each other a reload). A load
+ * that overlapped a write returns its value to the waiting callers without caching it.
+ * @param <K> The ID type
+ * @param <V> The entity type
+ */
+public class EntityCache<K, V> {
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<K, Optional<V>> cache;
+    private final boolean cacheMissing;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public EntityCache(CacheConfig config) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(config.maximumSize())
+                .expireAfterWrite(config.ttlMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.cacheMissing = config.cacheMissing();
+    }
+
+    /**
+     * Return the cached entity, loading it on a miss; concurrent callers for the key wait for one load
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<V> get(K key, Function<? super K, Optional<V>> loader) {
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        try {
+            Optional<V> value = cache.get(key, () -> {
+                long start = generations.get(stripe);
+                Optional<V> loaded = loader.apply(key);
+                if (generations.get(stripe) != start) {
+                    throw new StaleLoad(loaded);
+                }
+                return loaded;
+            });
+            if ((value.isEmpty() && !cacheMissing) || generations.get(stripe) != generation) {
+                // A write may have landed between the check above and the store
+                cache.invalidate(key);
+            }
+            return value;
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StaleLoad stale) {
+                return (Optional<V>) stale.value;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Failed to load " + key, cause);
+        }
+    }
+
+    /**
+     * Write-through after a successful save
+     */
+    public void put(K key, V value) {
+        generations.incrementAndGet(stripe(key));
+        cache.put(key, Optional.of(value));
+    }
+
+    /**
+     * Drop the key after a write; call once the write has run, so loads that read the old row
+     * are not cached
+     */
+    public void invalidate(K key) {
+        generations.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    public CacheMetrics metrics() {
+        CacheStats stats = cache.stats();
+        return new CacheMetrics(cache.size(), stats.hitCount(), stats.missCount(),
+                stats.loadCount(), stats.loadExceptionCount(), stats.evictionCount());
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * Thrown out of a load that overlapped a write, so Guava hands the value to the waiting
+     * callers without storing it
+     */
+    private static final class StaleLoad extends RuntimeException {
+        private final Optional<?> value;
+
+        StaleLoad(Optional<?> value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+}
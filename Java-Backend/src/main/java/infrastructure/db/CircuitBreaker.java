@@ -0,0 +1,116 @@
+package infrastructure.db;
+
+import domain.common.UnavailableException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count-based circuit breaker. Closed, it tracks the outcome of the last windowSize calls and
+ * opens once the failure rate reaches the threshold; open, every call fails immediately; after
+ * openMillis it lets halfOpenProbes trial calls through and closes if they all succeed, or opens
+ * again on the first failure. Every call admitted by {@link #acquire()} must report exactly one
+ * outcome. State changes are rare and calls are database round-trips, so it simply synchronizes.
+ */
+public final class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    // Ring of the most recent outcomes while closed, true meaning failure
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int minimumCalls, int windowSize,
+                          long openMillis, int halfOpenProbes) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.outcomes = new boolean[windowSize];
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Admit a call, or throw if the circuit is open or its half-open probes are taken
+     */
+    public synchronized void acquire() {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openNanos - System.nanoTime();
+            if (remaining > 0) {
+                throw new UnavailableException("Circuit for " + name + " is open", TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                throw new UnavailableException("Circuit for " + name + " is probing recovery", TimeUnit.NANOSECONDS.toMillis(openNanos) + 1);
+            }
+            probesStarted++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenProbes) {
+                reset();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
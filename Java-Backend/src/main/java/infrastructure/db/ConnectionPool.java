@@ -0,0 +1,435 @@
+package infrastructure.db;
+
+import metrics.DelayWindow;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Lightweight JDBC connection pool.
+ * Borrow and return are lock-free on the fast path: idle connections sit in a LIFO deque
+ * and a returning connection is handed directly to a waiting borrower when there is one.
+ * Connections are validated on borrow after being idle, retired after their max lifetime,
+ * and evicted by a housekeeping thread when idle above the minimum.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    /**
+     * Opens a new physical connection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static final long[] WAIT_BUCKETS_MICROS = {
+            10, 50, 100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, Long.MAX_VALUE
+    };
+
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final LinkedTransferQueue<PooledConnection> handoff = new LinkedTransferQueue<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder[] waitTimeCounts = new LongAdder[WAIT_BUCKETS_MICROS.length];
+    private final DelayWindow recentWait = new DelayWindow(100, TimeUnit.MILLISECONDS);
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, PoolConfig config) {
+        this.factory = factory;
+        this.config = config;
+        for (int i = 0; i < waitTimeCounts.length; i++) {
+            waitTimeCounts[i] = new LongAdder();
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, config.housekeepingPeriodMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.connectionTimeoutMillis());
+
+        while (true) {
+            PooledConnection entry = idle.pollFirst();
+            if (entry != null) {
+                if (isUsable(entry)) {
+                    return lend(entry, start);
+                }
+                destroy(entry);
+                continue;
+            }
+
+            if (reserveSlot()) {
+                return lend(open(), start);
+            }
+
+            entry = awaitHandoff(deadline);
+            if (entry != null) {
+                if (isUsable(entry)) {
+                    return lend(entry, start);
+                }
+                destroy(entry);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    public PoolMetrics metrics() {
+        long[] counts = new long[waitTimeCounts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = waitTimeCounts[i].sum();
+        }
+        return new PoolMetrics(active.get(), idle.size(), total.get(), waiters.get(),
+                borrowed.sum(), timeouts.sum(), created.sum(), destroyed.sum(),
+                WAIT_BUCKETS_MICROS.clone(), counts, statementHits.sum(), statementMisses.sum());
+    }
+
+    /**
+     * Smallest wait for a connection over the last 100ms, in nanoseconds; see {@link DelayWindow}
+     */
+    public long recentWaitNanos() {
+        return recentWait.nanos();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * Wait for a connection released by another thread, or throw once the deadline passes
+     */
+    private PooledConnection awaitHandoff(long deadline) throws SQLException {
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeouts.increment();
+                    throw new SQLTransientConnectionException("Timed out after " + config.connectionTimeoutMillis()
+                            + "ms waiting for a connection (active=" + active.get() + ", max=" + config.maxSize() + ")");
+                }
+
+                // Poll in short slices so a connection returned to the idle deque just
+                // before this thread registered as a waiter is not missed
+                PooledConnection entry = handoff.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+                if (entry == null) {
+                    entry = idle.pollFirst();
+                }
+                if (entry != null || total.get() < config.maxSize()) {
+                    return entry;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = total.get();
+            if (current >= config.maxSize()) {
+                return false;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            StatementCache statements = config.statementCacheSize() > 0
+                    ? new StatementCache(config.statementCacheSize(), statementHits, statementMisses)
+                    : null;
+            PooledConnection entry = new PooledConnection(factory.create(), statements);
+            created.increment();
+            return entry;
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.createdAt >= config.maxLifetimeMillis()) {
+            return false;
+        }
+        if (now - entry.lastReleased < config.validateAfterIdleMillis()) {
+            return true;
+        }
+        try {
+            return entry.raw.isValid(config.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(PooledConnection entry, long borrowStart) {
+        active.incrementAndGet();
+        borrowed.increment();
+        recordWait(System.nanoTime() - borrowStart);
+        return entry.lend(this);
+    }
+
+    /**
+     * Called when a borrower closes its connection handle
+     */
+    void release(PooledConnection entry) {
+        active.decrementAndGet();
+
+        if (!entry.broken) {
+            try {
+                if (!entry.raw.getAutoCommit()) {
+                    entry.raw.rollback();
+                    entry.raw.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                entry.broken = true;
+            }
+        }
+
+        if (closed || entry.broken || System.currentTimeMillis() - entry.createdAt >= config.maxLifetimeMillis()) {
+            destroy(entry);
+            return;
+        }
+
+        entry.lastReleased = System.currentTimeMillis();
+        if (waiters.get() > 0 && handoff.tryTransfer(entry)) {
+            return;
+        }
+        idle.offerFirst(entry);
+    }
+
+    private void destroy(PooledConnection entry) {
+        total.decrementAndGet();
+        destroyed.increment();
+        try {
+            entry.raw.close();
+        } catch (SQLException ignored) {
+            // The connection is being discarded anyway
+        }
+    }
+
+    private void recordWait(long nanos) {
+        recentWait.record(nanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        for (int i = 0; i < WAIT_BUCKETS_MICROS.length; i++) {
+            if (micros <= WAIT_BUCKETS_MICROS[i]) {
+                waitTimeCounts[i].increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evict idle connections above minIdle, retire expired ones and top the pool back up
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection entry : idle) {
+            boolean expired = now - entry.createdAt >= config.maxLifetimeMillis();
+            boolean idleTooLong = now - entry.lastReleased >= config.idleTimeoutMillis() && total.get() > config.minIdle();
+            if ((expired || idleTooLong) && idle.remove(entry)) {
+                destroy(entry);
+            }
+        }
+
+        while (!closed && total.get() < config.minIdle() && reserveSlot()) {
+            try {
+                PooledConnection entry = open();
+                entry.lastReleased = System.currentTimeMillis();
+                idle.offerLast(entry);
+            } catch (SQLException | RuntimeException e) {
+                // Database unavailable; retry on the next run
+                return;
+            }
+        }
+    }
+
+    /**
+     * A physical connection and its bookkeeping; borrowers only ever see a proxy
+     */
+    static final class PooledConnection {
+        final Connection raw;
+        final StatementCache statements;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReleased = createdAt;
+        volatile boolean broken;
+
+        PooledConnection(Connection raw, StatementCache statements) {
+            this.raw = raw;
+            this.statements = statements;
+        }
+
+        Connection lend(ConnectionPool pool) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(pool, this));
+        }
+    }
+
+    /**
+     * Borrower-facing handle: close() returns the connection instead of closing it
+     */
+    private static final class Handle implements InvocationHandler {
+        private final ConnectionPool pool;
+        private final PooledConnection entry;
+        private boolean closed;
+
+        Handle(ConnectionPool pool, PooledConnection entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        pool.release(entry);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || entry.raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + entry.raw + "]";
+                }
+                default -> {
+                    if (closed) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                }
+            }
+
+            try {
+                if (entry.statements != null && isCacheablePrepare(method)) {
+                    int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                    return entry.statements.prepare(entry.raw, (Connection) proxy, (String) args[0], keys);
+                }
+                return method.invoke(entry.raw, args);
+            } catch (SQLException e) {
+                if (isConnectionError(e)) {
+                    entry.broken = true;
+                }
+                throw e;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sql && isConnectionError(sql)) {
+                    entry.broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys)
+         */
+        private static boolean isCacheablePrepare(Method method) {
+            if (!method.getName().equals("prepareStatement")) {
+                return false;
+            }
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+
+        private static boolean isConnectionError(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+
+    // Remaining DataSource methods
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(config.connectionTimeoutMillis());
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
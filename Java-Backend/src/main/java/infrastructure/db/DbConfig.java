@@ -3,19 +3,56 @@ package infrastructure.db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Optional;
 import java.util.Properties;
 
-public class DbConfig {
+public class DbConfig implements AutoCloseable {
     private final String url, user, password;
+    private final ConnectionPool pool;
 
     public DbConfig(String url, String user, String password) {
-        this.url = url; 
-        this.user = user; 
+        this.url = url;
+        this.user = user;
         this.password = password;
+        this.pool = null;
+    }
+
+    /**
+     * Config whose connections come from a pool; closing them returns them to the pool
+     */
+    public DbConfig(String url, String user, String password, PoolConfig poolConfig) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.pool = new ConnectionPool(this::openConnection, poolConfig);
     }
 
     public Connection getConnection() throws SQLException {
-        // For production prefer a pool (HikariCP). This is the pure approach.
+        return pool != null ? pool.getConnection() : openConnection();
+    }
+
+    /**
+     * Pool statistics, empty when pooling is disabled
+     */
+    public Optional<PoolMetrics> poolMetrics() {
+        return pool != null ? Optional.of(pool.metrics()) : Optional.empty();
+    }
+
+    /**
+     * Recent wait for a pooled connection in nanoseconds, 0 when pooling is disabled
+     */
+    public long poolWaitNanos() {
+        return pool != null ? pool.recentWaitNanos() : 0;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
         Properties props = new Properties();
         props.setProperty("user", user);
         props.setProperty("password", password);
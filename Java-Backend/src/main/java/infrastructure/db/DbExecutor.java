@@ -0,0 +1,91 @@
+package infrastructure.db;
+
+import domain.common.UnavailableException;
+import metrics.DelayWindow;
+
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool that runs blocking repository calls for the async stack, so HTTP threads hand a
+ * request off instead of waiting on the database and the two pools are sized independently.
+ * Size the pool close to the connection pool: more threads only wait for a connection.
+ * When the queue is full the call fails fast with {@link UnavailableException} instead of
+ * queueing without bound behind a slow database.
+ */
+public class DbExecutor implements AutoCloseable {
+    private final ThreadPoolExecutor pool;
+    private final LongAdder rejected = new LongAdder();
+    private final DelayWindow queueDelay = new DelayWindow(100, TimeUnit.MILLISECONDS);
+
+    public DbExecutor(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Invalid db executor config: threads=" + threads
+                    + ", queueCapacity=" + queueCapacity);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "db-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Read db.executor.threads and db.executor.queueCapacity
+     */
+    public static DbExecutor fromProperties(Properties props) {
+        return new DbExecutor(
+                Integer.parseInt(props.getProperty("db.executor.threads", "16")),
+                Integer.parseInt(props.getProperty("db.executor.queueCapacity", "1024")));
+    }
+
+    /**
+     * Run the call on a database thread
+     * @return a future failed with UnavailableException if the queue is full
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> call) {
+        long queued = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueDelay.record(System.nanoTime() - queued);
+                return call.get();
+            }, pool);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new UnavailableException("Database executor queue is full", 100));
+        }
+    }
+
+    public int queueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public int activeCount() {
+        return pool.getActiveCount();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Minimum time calls waited in the queue over the last interval, for load shedding
+     */
+    public long queueDelayNanos() {
+        return queueDelay.nanos();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,156 @@
+package infrastructure.db;
+
+import domain.common.UnavailableException;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead, circuit breaker and query timeout around one repository's connections.
+ * A call takes a bulkhead slot and circuit permission before it gets a connection, and hands
+ * both back when it closes the connection. The outcome reported to the breaker is a failure
+ * if any statement or connection method threw a SQLException other than a constraint
+ * violation, which is the caller's fault rather than the database's.
+ */
+final class DbGuard {
+    private final String tableName;
+    private final ResilienceConfig config;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final Counter bulkheadRejections;
+    private final Counter circuitRejections;
+
+    DbGuard(String tableName, ResilienceConfig config) {
+        this.tableName = tableName;
+        this.config = config;
+        this.bulkhead = new Semaphore(config.maxConcurrentCalls());
+        this.breaker = new CircuitBreaker(tableName, config.failureRateThreshold(), config.minimumCalls(),
+                config.windowSize(), config.openMillis(), config.halfOpenProbes());
+
+        MetricsRegistry registry = MetricsRegistry.global();
+        this.bulkheadRejections = registry.counter("db_calls_rejected_total",
+                "Database calls refused without being attempted", "table", tableName, "reason", "bulkhead");
+        this.circuitRejections = registry.counter("db_calls_rejected_total",
+                "Database calls refused without being attempted", "table", tableName, "reason", "circuit_open");
+        registry.gauge("db_bulkhead_available", "Free bulkhead slots", bulkhead::availablePermits, "table", tableName);
+        registry.gauge("db_circuit_state", "Circuit breaker state (0 closed, 1 open, 2 half-open)",
+                () -> breaker.state().ordinal(), "table", tableName);
+    }
+
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /**
+     * Get a connection from the source within the bulkhead and circuit breaker
+     * @throws UnavailableException if the bulkhead is full or the circuit is open
+     */
+    Connection connect(DbConfig source) throws SQLException {
+        try {
+            if (!bulkhead.tryAcquire(config.maxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                bulkheadRejections.increment();
+                throw new UnavailableException("Too many concurrent calls to " + tableName, config.maxWaitMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a bulkhead slot on " + tableName, e);
+        }
+
+        try {
+            breaker.acquire();
+        } catch (UnavailableException e) {
+            bulkhead.release();
+            circuitRejections.increment();
+            throw e;
+        }
+
+        Connection connection;
+        try {
+            connection = source.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            release(true);
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new GuardedConnection(connection));
+    }
+
+    private void release(boolean failed) {
+        try {
+            if (failed) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Constraint violations (SQLState class 23) mean bad input, not an unhealthy database
+     */
+    private static boolean isDatabaseFailure(SQLException e) {
+        String state = e.getSQLState();
+        return state == null || !state.startsWith("23");
+    }
+
+    /**
+     * Connection handle that watches for failures and releases the guard on close
+     */
+    private final class GuardedConnection implements InvocationHandler {
+        private final Connection connection;
+        private boolean failed;
+        private boolean closed;
+
+        GuardedConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("close")) {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        connection.close();
+                    } finally {
+                        release(failed);
+                    }
+                }
+                return null;
+            }
+
+            Object result = call(connection, method, args);
+            // Statements report failures here too, and get the query timeout
+            if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                if (config.queryTimeoutSeconds() > 0) {
+                    statement.setQueryTimeout(config.queryTimeoutSeconds());
+                }
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, (p, m, a) -> call(statement, m, a));
+            }
+            return result;
+        }
+
+        private Object call(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException sql && isDatabaseFailure(sql)) {
+                    failed = true;
+                }
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package infrastructure.db;
+
+import domain.common.Page;
+import domain.user.User;
+import ports.user.AsyncUserRepository;
+import ports.user.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * AsyncUserRepository that runs each call of a blocking UserRepository on the DbExecutor.
+ * JDBC has no non-blocking API, so this moves the wait off the HTTP threads rather than
+ * removing it; the DbExecutor bounds how many calls wait at once.
+ */
+public class ExecutorUserRepository implements AsyncUserRepository {
+    private final UserRepository delegate;
+    private final DbExecutor executor;
+
+    public ExecutorUserRepository(UserRepository delegate, DbExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<User>> findAll() {
+        return executor.supply(delegate::findAll);
+    }
+
+    @Override
+    public CompletableFuture<Stream<User>> streamAll() {
+        return executor.supply(delegate::streamAll);
+    }
+
+    @Override
+    public CompletableFuture<Page<User>> findPage(long after, int limit) {
+        return executor.supply(() -> delegate.findPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Page<Map<String, Object>>> findPage(long after, int limit, List<String> fields) {
+        return executor.supply(() -> delegate.findPage(after, limit, fields));
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> findBydId(long id) {
+        return executor.supply(() -> delegate.findBydId(id));
+    }
+
+    @Override
+    public CompletableFuture<User> save(User user) {
+        return executor.supply(() -> delegate.save(user));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> saveAll(Collection<User> users) {
+        return executor.supply(() -> delegate.saveAll(users));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateFields(long id, Map<String, Object> fields) {
+        return executor.supply(() -> delegate.updateFields(id, fields));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteById(long id) {
+        return executor.supply(() -> delegate.deleteById(id));
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+}
@@ -1,9 +1,33 @@
 package infrastructure.db;
 
+import domain.common.Page;
+import infrastructure.cache.CacheMetrics;
+import infrastructure.cache.EntityCache;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Generic JDBC repository that can work with any domain entity
@@ -11,65 +35,410 @@ import java.util.Optional;
  * @param <ID> The ID type (typically Long)
  */
 public abstract class GenericJdbcRepository<T, ID> {
+    private static final Logger log = LoggerFactory.getLogger(GenericJdbcRepository.class);
+
     protected final DbConfig dbConfig;
     protected final String tableName;
 
+    // SQL is built once per repository so statement caches see identical text
+    private final String selectAllSql;
+    private final String selectByIdSql;
+    private final String deleteByIdSql;
+    // From the subclass hooks on first use: the constructor runs before subclass fields are set
+    private volatile String insertSql;
+    private volatile String updateSql;
+    private final String firstPageSql;
+    private final String nextPageSql;
+    private final Map<String, String> customQuerySql = new ConcurrentHashMap<>();
+    private final Map<Set<String>, String[]> projectionSql = new ConcurrentHashMap<>();
+    private final Map<Set<String>, String> partialUpdateSql = new ConcurrentHashMap<>();
+    private final Map<Integer, String> multiRowInsertSql = new ConcurrentHashMap<>();
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile EntityCache<ID, T> cache;
+    private volatile SlowQueryLog slowQueryLog = SlowQueryLog.defaults();
+    private volatile GroupCommitInserter<T> groupCommit;
+    private volatile DbGuard guard;
+    // Bumped after every write through this repository; see version()
+    private final AtomicLong version = new AtomicLong();
+
+    // Per-table operation metrics, resolved once so timing a call does not allocate
+    private final Timer findAllTimer;
+    private final Timer findByIdTimer;
+    private final Timer findPageTimer;
+    private final Timer queryTimer;
+    private final Timer insertTimer;
+    private final Timer updateTimer;
+    private final Timer saveAllTimer;
+    private final Timer groupInsertTimer;
+    private final Timer deleteTimer;
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    // Placeholder limit of the MySQL protocol, the lowest of the common drivers
+    private static final int MAX_STATEMENT_PARAMETERS = 65_535;
+
     public GenericJdbcRepository(DbConfig dbConfig, String tableName) {
         this.dbConfig = dbConfig;
         this.tableName = tableName;
+
+        this.selectAllSql = "SELECT * FROM " + tableName;
+        this.selectByIdSql = "SELECT * FROM " + tableName + " WHERE id = ?";
+        this.deleteByIdSql = "DELETE FROM " + tableName + " WHERE id = ?";
+        this.firstPageSql = selectAllSql + " ORDER BY id LIMIT ?";
+        this.nextPageSql = selectAllSql + " WHERE id > ? ORDER BY id LIMIT ?";
+
+        this.findAllTimer = operationTimer("findAll");
+        this.findByIdTimer = operationTimer("findById");
+        this.findPageTimer = operationTimer("findPage");
+        this.queryTimer = operationTimer("query");
+        this.insertTimer = operationTimer("insert");
+        this.updateTimer = operationTimer("update");
+        this.saveAllTimer = operationTimer("saveAll");
+        this.groupInsertTimer = operationTimer("groupInsert");
+        this.deleteTimer = operationTimer("delete");
     }
 
     /**
      * Find all entities from the table
      */
     public List<T> findAll() {
-        String query = "SELECT * FROM " + tableName;
         List<T> entities = new ArrayList<>();
+        long start = System.nanoTime();
         
-        try (Connection connection = dbConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(query);
+        try (Connection connection = connect();
+            PreparedStatement statement = connection.prepareStatement(selectAllSql);
             ResultSet resultSet = statement.executeQuery()) {
             
             while (resultSet.next()) {
                 entities.add(mapRowToEntity(resultSet));
             }
         } catch (SQLException e) {
+            findAllTimer.fail(start);
             throw new RuntimeException("Error finding all entities from " + tableName, e);
         }
         
+        completed(findAllTimer, start, selectAllSql, entities.size());
         return entities;
     }
 
     /**
-     * Find entity by ID
+     * Stream all entities through a forward-only cursor, {@link #getFetchSize()} rows per round-trip.
+     * The stream holds a connection until it is closed, so use it in try-with-resources.
+     */
+    public Stream<T> streamAll() {
+        Cursor cursor = openCursor();
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    /**
+     * Visit every entity in the table without materializing the result
+     */
+    public void forEach(Consumer<? super T> action) {
+        try (Cursor cursor = openCursor()) {
+            cursor.forEachRemaining(action);
+        }
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Rows fetched per round-trip by streamAll/forEach (a driver hint; MySQL needs useCursorFetch=true)
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Find up to limit entities with an id greater than after, in id order.
+     * Keyset pagination: the cost of a page does not depend on how deep it is.
+     * @param after id of the last entity of the previous page, or null for the first page
+     */
+    public Page<T> findPage(ID after, int limit) {
+        checkLimit(limit);
+        List<T> entities = new ArrayList<>(Math.min(limit, 1024));
+        String lastId = null;
+        long start = System.nanoTime();
+
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(after == null ? firstPageSql : nextPageSql)) {
+
+            int index = 1;
+            if (after != null) {
+                setIdParameter(statement, index++, after);
+            }
+            statement.setInt(index, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    lastId = resultSet.getString("id");
+                    entities.add(mapRowToEntity(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            findPageTimer.fail(start);
+            throw new RuntimeException("Error finding page after " + after + " in " + tableName, e);
+        }
+
+        completed(findPageTimer, start, after == null ? firstPageSql : nextPageSql, entities.size());
+        return new Page<>(entities, entities.size() == limit ? lastId : null);
+    }
+
+    /**
+     * Same as {@link #findPage(Object, int)} but selects only the given columns.
+     * The id is always included since it is the page cursor; unknown columns are rejected.
+     */
+    public Page<Map<String, Object>> findPage(ID after, int limit, Collection<String> fields) {
+        checkLimit(limit);
+        String[] sql = projectionSql.computeIfAbsent(projection(fields), this::buildProjectionSql);
+        List<Map<String, Object>> rows = new ArrayList<>(Math.min(limit, 1024));
+        String lastId = null;
+        long start = System.nanoTime();
+
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(after == null ? sql[0] : sql[1])) {
+
+            int index = 1;
+            if (after != null) {
+                setIdParameter(statement, index++, after);
+            }
+            statement.setInt(index, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                while (resultSet.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= columnCount; i++) {
+                        row.put(metaData.getColumnLabel(i), resultSet.getObject(i));
+                    }
+                    lastId = resultSet.getString("id");
+                    rows.add(row);
+                }
+            }
+        } catch (SQLException e) {
+            findPageTimer.fail(start);
+            throw new RuntimeException("Error finding page after " + after + " in " + tableName, e);
+        }
+
+        completed(findPageTimer, start, after == null ? sql[0] : sql[1], rows.size());
+        return new Page<>(rows, rows.size() == limit ? lastId : null);
+    }
+
+    /**
+     * Find entity by ID, through the entity cache when one is set
      */
     public Optional<T> findById(ID id) {
-        String query = "SELECT * FROM " + tableName + " WHERE id = ?";
-        
-        try (Connection connection = dbConfig.getConnection();
-            PreparedStatement statement = connection.prepareStatement(query)) {
+        EntityCache<ID, T> entityCache = cache;
+        return entityCache != null ? entityCache.get(id, this::loadById) : loadById(id);
+    }
+
+    /**
+     * Serve findById from a read-through cache kept up to date by save, saveAll and deleteById
+     * @param cache the cache, or null to read from the database every time
+     */
+    public void setCache(EntityCache<ID, T> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Entity cache statistics, empty when no cache is set
+     */
+    public Optional<CacheMetrics> cacheMetrics() {
+        EntityCache<ID, T> entityCache = cache;
+        return entityCache != null ? Optional.of(entityCache.metrics()) : Optional.empty();
+    }
+
+    private Optional<T> loadById(ID id) {
+        long start = System.nanoTime();
+        Optional<T> entity = Optional.empty();
+
+        try (Connection connection = connect();
+            PreparedStatement statement = connection.prepareStatement(selectByIdSql)) {
             
             setIdParameter(statement, 1, id);
-            ResultSet resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(mapRowToEntity(resultSet));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    entity = Optional.of(mapRowToEntity(resultSet));
+                }
             }
         } catch (SQLException e) {
+            findByIdTimer.fail(start);
             throw new RuntimeException("Error finding entity by id: " + id + " in " + tableName, e);
         }
         
-        return Optional.empty();
+        completed(findByIdTimer, start, selectByIdSql, entity.isPresent() ? 1 : 0);
+        return entity;
     }
 
     /**
      * Save entity (insert if new, update if exists)
      */
     public T save(T entity) {
-        if (isNewEntity(entity)) {
-            return insert(entity);
-        } else {
-            return update(entity);
+        boolean isNew = isNewEntity(entity);
+        GroupCommitInserter<T> inserter = groupCommit;
+        if (isNew && inserter != null) {
+            return insertGrouped(inserter, entity);
+        }
+        Timer timer = isNew ? insertTimer : updateTimer;
+        long start = System.nanoTime();
+        T saved;
+        try {
+            saved = isNew ? insert(entity) : update(entity);
+        } catch (RuntimeException e) {
+            timer.fail(start);
+            throw e;
+        } finally {
+            version.incrementAndGet();
+        }
+        completed(timer, start, isNew ? insertSql() : updateSql(), 1);
+
+        cachePut(saved);
+        return saved;
+    }
+
+    /**
+     * Save all entities in one transaction using JDBC batches.
+     * New entities are inserted and existing ones updated in chunks of {@link #getBatchSize()} rows;
+     * the result has the saved entities (with generated IDs) in input order.
+     */
+    public List<T> saveAll(Collection<T> entities) {
+        List<T> input = new ArrayList<>(entities);
+        List<T> saved = new ArrayList<>(input);
+        if (input.isEmpty()) {
+            return saved;
+        }
+
+        List<Integer> newIndexes = new ArrayList<>();
+        List<Integer> existingIndexes = new ArrayList<>();
+        for (int i = 0; i < input.size(); i++) {
+            (isNewEntity(input.get(i)) ? newIndexes : existingIndexes).add(i);
+        }
+
+        long start = System.nanoTime();
+        try (Connection connection = connect()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            Exception failure = null;
+            try {
+                if (!newIndexes.isEmpty()) {
+                    insertBatch(connection, input, newIndexes, saved);
+                }
+                if (!existingIndexes.isEmpty()) {
+                    updateBatch(connection, input, existingIndexes);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                failure = e;
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                version.incrementAndGet();
+                // A failed restore must not hide the batch or rollback error that got us here
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } catch (SQLException restoreFailure) {
+                    if (failure == null) {
+                        throw restoreFailure;
+                    }
+                    failure.addSuppressed(restoreFailure);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            saveAllTimer.fail(start);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Error saving " + input.size() + " entities into " + tableName + ": " + e.getMessage(), e);
+        }
+
+        completed(saveAllTimer, start, insertSql() + " / " + updateSql(), input.size());
+        for (T entity : saved) {
+            cachePut(entity);
+        }
+        return saved;
+    }
+
+    /**
+     * Queue inserts from save() and write them in multi-row INSERTs from one flusher thread.
+     * Callers still block until their own row is written and get it back with its generated id,
+     * but under concurrent load many rows share one statement and one round-trip.
+     * Needs an insert query of the form INSERT ... VALUES (...) and a driver that returns the
+     * generated keys of every row of a multi-row insert in order (MySQL, PostgreSQL).
+     * @param config batch settings, or null to go back to one INSERT per save; queued rows are
+     *               written before this returns
+     */
+    public void setGroupCommit(GroupCommitConfig config) {
+        GroupCommitInserter<T> previous;
+        synchronized (multiRowInsertSql) {
+            if (config != null) {
+                multiRowInsert(config.maxBatchSize());
+            }
+            previous = groupCommit;
+            groupCommit = config == null ? null : new GroupCommitInserter<>(tableName, config, this::insertRows);
+        }
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Number of rows sent per executeBatch call in saveAll
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set only the given columns of one row, without reading it first. The UPDATE lists just
+     * those columns, so unchanged ones are not rewritten; statements are cached per column set.
+     * A cached entity is invalidated rather than updated, since the full row is never loaded.
+     * @param fields column name to new value; unknown columns and the id are rejected
+     * @return false if there is no row with that id
+     */
+    public boolean updateFields(ID id, Map<String, ?> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        Set<String> columns = updatableColumns(fields.keySet());
+        String query = partialUpdateSql.computeIfAbsent(columns, this::buildPartialUpdateSql);
+
+        long start = System.nanoTime();
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+
+            int index = 1;
+            for (String column : columns) {
+                statement.setObject(index++, fields.get(column));
+            }
+            setIdParameter(statement, index, id);
+            int affectedRows = statement.executeUpdate();
+            completed(updateTimer, start, query, affectedRows);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            updateTimer.fail(start);
+            logSqlFailure("update", query, e);
+            throw new RuntimeException("Error updating entity " + id + " in " + tableName + ": " + e.getMessage(), e);
+        } finally {
+            version.incrementAndGet();
+            EntityCache<ID, T> entityCache = cache;
+            if (entityCache != null) {
+                entityCache.invalidate(id);
+            }
         }
     }
 
@@ -77,41 +446,62 @@ public abstract class GenericJdbcRepository<T, ID> {
      * Delete entity by ID
      */
     public boolean deleteById(ID id) {
-        String query = "DELETE FROM " + tableName + " WHERE id = ?";
-        
-        try (Connection connection = dbConfig.getConnection();
-             PreparedStatement statement = connection.prepareStatement(query)) {
+        long start = System.nanoTime();
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(deleteByIdSql)) {
             
             setIdParameter(statement, 1, id);
             int affectedRows = statement.executeUpdate();
+            completed(deleteTimer, start, deleteByIdSql, affectedRows);
             return affectedRows > 0;
         } catch (SQLException e) {
+            deleteTimer.fail(start);
             throw new RuntimeException("Error deleting entity by id: " + id + " from " + tableName, e);
+        } finally {
+            version.incrementAndGet();
+            // After the delete, so a concurrent read cannot cache the row again before it is gone
+            EntityCache<ID, T> entityCache = cache;
+            if (entityCache != null) {
+                entityCache.invalidate(id);
+            }
         }
     }
 
+    /**
+     * Number of writes made through this repository, counted once each has finished (committed
+     * or not). Readers that see the same value before and after can assume nothing written by
+     * this process changed in between; writes from other processes are not seen.
+     */
+    public long version() {
+        return version.get();
+    }
+
     /**
      * Execute custom query and return list of entities
      */
     public List<T> findByCustomQuery(String whereClause, Object... parameters) {
-        String query = "SELECT * FROM " + tableName + " WHERE " + whereClause;
+        String query = customQuerySql.computeIfAbsent(whereClause, clause -> selectAllSql + " WHERE " + clause);
         List<T> entities = new ArrayList<>();
+        long start = System.nanoTime();
         
-        try (Connection connection = dbConfig.getConnection();
+        try (Connection connection = connect();
              PreparedStatement statement = connection.prepareStatement(query)) {
             
             for (int i = 0; i < parameters.length; i++) {
                 statement.setObject(i + 1, parameters[i]);
             }
             
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                entities.add(mapRowToEntity(resultSet));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    entities.add(mapRowToEntity(resultSet));
+                }
             }
         } catch (SQLException e) {
+            queryTimer.fail(start);
             throw new RuntimeException("Error executing custom query on " + tableName, e);
         }
         
+        completed(queryTimer, start, query, entities.size());
         return entities;
     }
 
@@ -125,28 +515,229 @@ public abstract class GenericJdbcRepository<T, ID> {
 
     // Abstract methods that subclasses must implement
     protected abstract T mapRowToEntity(ResultSet resultSet) throws SQLException;
+    protected abstract List<String> getColumns();
     protected abstract String getInsertQuery();
     protected abstract String getUpdateQuery();
+
+    private String insertSql() {
+        String sql = insertSql;
+        if (sql == null) {
+            insertSql = sql = getInsertQuery();
+        }
+        return sql;
+    }
+
+    private String updateSql() {
+        String sql = updateSql;
+        if (sql == null) {
+            updateSql = sql = getUpdateQuery();
+        }
+        return sql;
+    }
     protected abstract void setInsertParameters(PreparedStatement statement, T entity) throws SQLException;
     protected abstract void setUpdateParameters(PreparedStatement statement, T entity) throws SQLException;
     protected abstract boolean isNewEntity(T entity);
+    protected abstract ID getId(T entity);
     protected abstract void setIdParameter(PreparedStatement statement, int parameterIndex, ID id) throws SQLException;
     protected abstract ID getGeneratedId(ResultSet resultSet) throws SQLException;
 
+    /**
+     * Log statements slower than the threshold; defaults to 200ms with every slow statement logged
+     */
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * Run every call of this repository through a bulkhead and circuit breaker, and give its
+     * statements a query timeout. Calls refused by either fail fast with UnavailableException,
+     * without touching the database, so request threads are not tied up while it is down.
+     * @param config limits, or null to remove them
+     */
+    public void setResilience(ResilienceConfig config) {
+        this.guard = config == null ? null : new DbGuard(tableName, config);
+    }
+
+    /**
+     * Circuit breaker state, empty when no resilience config is set
+     */
+    public Optional<CircuitBreaker.State> circuitState() {
+        DbGuard current = guard;
+        return current != null ? Optional.of(current.breaker().state()) : Optional.empty();
+    }
+
+    private Connection connect() throws SQLException {
+        DbGuard current = guard;
+        return current != null ? current.connect(dbConfig) : dbConfig.getConnection();
+    }
+
+    private void completed(Timer timer, long start, String sql, long rows) {
+        slowQueryLog.record(tableName, sql, timer.stop(start), rows);
+    }
+
+    private Timer operationTimer(String operation) {
+        return MetricsRegistry.global().timer("db_operation", "Repository operation latency",
+                "table", tableName, "operation", operation);
+    }
+
+    private void cachePut(T entity) {
+        EntityCache<ID, T> entityCache = cache;
+        if (entityCache != null) {
+            entityCache.put(getId(entity), entity);
+        }
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+    }
+
+    /**
+     * Validate requested fields against the column whitelist, in table column order with id first
+     */
+    private Set<String> projection(Collection<String> fields) {
+        List<String> columns = getColumns();
+        for (String field : fields) {
+            if (!columns.contains(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "' for " + tableName);
+            }
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String column : columns) {
+            if (fields.contains(column)) {
+                selected.add(column);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Validate columns for a partial update against the whitelist, in table column order
+     */
+    private Set<String> updatableColumns(Collection<String> fields) {
+        List<String> columns = getColumns();
+        for (String field : fields) {
+            if (!columns.contains(field) || field.equals("id")) {
+                throw new IllegalArgumentException("Cannot update field '" + field + "' of " + tableName);
+            }
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        for (String column : columns) {
+            if (fields.contains(column)) {
+                selected.add(column);
+            }
+        }
+        return selected;
+    }
+
+    private String buildPartialUpdateSql(Set<String> columns) {
+        return "UPDATE " + tableName + " SET " + String.join(" = ?, ", columns) + " = ? WHERE id = ?";
+    }
+
+    private String[] buildProjectionSql(Set<String> columns) {
+        String select = "SELECT " + String.join(", ", columns) + " FROM " + tableName;
+        return new String[]{
+                select + " ORDER BY id LIMIT ?",
+                select + " WHERE id > ? ORDER BY id LIMIT ?"
+        };
+    }
+
+    private Cursor openCursor() {
+        Connection connection = null;
+        try {
+            connection = connect();
+            // Some drivers (e.g. PostgreSQL) only use server cursors outside auto-commit
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            // Not served from the statement cache: the fetch size and cursor belong to this stream
+            PreparedStatement statement = connection.prepareStatement(selectAllSql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            Cursor cursor = new Cursor(connection, autoCommit, statement);
+            statement.setFetchSize(fetchSize);
+            cursor.resultSet = statement.executeQuery();
+            return cursor;
+        } catch (SQLException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new RuntimeException("Error streaming entities from " + tableName, e);
+        }
+    }
+
+    /**
+     * Open result set over the whole table; owns its statement and connection
+     */
+    private final class Cursor extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+        private final Connection connection;
+        private final boolean autoCommit;
+        private final PreparedStatement statement;
+        private ResultSet resultSet;
+        private boolean closed;
+
+        Cursor(Connection connection, boolean autoCommit, PreparedStatement statement) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.autoCommit = autoCommit;
+            this.statement = statement;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapRowToEntity(resultSet));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Error streaming entities from " + tableName, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (connection; statement) {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (autoCommit) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Error closing cursor on " + tableName, e);
+            }
+        }
+    }
+
     private T insert(T entity) {
-        String query = getInsertQuery();
-        System.out.println("=== Insert Operation Debug ===");
-        System.out.println("Table: " + tableName);
-        System.out.println("Query: " + query);
-        System.out.println("Entity before insert: " + entity);
+        String query = insertSql();
 
-        try (Connection connection = dbConfig.getConnection();
+        try (Connection connection = connect();
              PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             
             setInsertParameters(statement, entity);
             
             int affectedRows = statement.executeUpdate();
-            System.out.println("Affected rows: " + affectedRows);
 
             if (affectedRows == 0) {
                 throw new RuntimeException("Failed to insert entity into " + tableName);
@@ -155,57 +746,186 @@ public abstract class GenericJdbcRepository<T, ID> {
             try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     ID generatedId = getGeneratedId(generatedKeys);
-                    System.out.println("Generated ID: " + generatedId);
-
-                    T resultEntity = updateEntityWithId(entity, generatedId);
-                    System.out.println("Entity after insert: " + resultEntity);
-                    System.out.println("=== Insert Success ===");
-
-                    return resultEntity;
+                    // Parameterized, so the entity is only formatted when debug is enabled
+                    log.debug("Inserted into {} with id {}: {}", tableName, generatedId, entity);
+                    return updateEntityWithId(entity, generatedId);
                 } else {
                     throw new RuntimeException("Failed to get generated ID for " + tableName);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("=== SQL Exception during insert ===");
-            System.err.println("Table: " + tableName);
-            System.err.println("Query: " + query);
-            System.err.println("Error Code: " + e.getErrorCode());
-            System.err.println("SQL State: " + e.getSQLState());
-            System.err.println("Message: " + e.getMessage());
-            System.err.println("===================================");
-            e.printStackTrace();
+            logSqlFailure("insert", query, e);
             throw new RuntimeException("Error inserting entity into " + tableName + ": " + e.getMessage(), e);
         }
     }
 
+    private T insertGrouped(GroupCommitInserter<T> inserter, T entity) {
+        long start = System.nanoTime();
+        try {
+            T saved = inserter.submit(entity).join();
+            insertTimer.stop(start);
+            return saved;
+        } catch (CompletionException e) {
+            insertTimer.fail(start);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            insertTimer.fail(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Insert entities with one multi-row statement; runs on the group commit flusher thread
+     */
+    private List<T> insertRows(List<T> entities) {
+        String query = multiRowInsert(entities.size());
+        int parameterCount = parameterCount(insertSql());
+        long start = System.nanoTime();
+
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (int i = 0; i < entities.size(); i++) {
+                setInsertParameters(ParameterOffset.shift(statement, i * parameterCount), entities.get(i));
+            }
+            statement.executeUpdate();
+
+            List<T> saved = new ArrayList<>(entities.size());
+            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                while (saved.size() < entities.size() && generatedKeys.next()) {
+                    saved.add(updateEntityWithId(entities.get(saved.size()), getGeneratedId(generatedKeys)));
+                }
+            }
+            if (saved.size() < entities.size()) {
+                throw new RuntimeException("Failed to get generated IDs for " + (entities.size() - saved.size()) + " rows in " + tableName);
+            }
+
+            completed(groupInsertTimer, start, query, saved.size());
+            for (T entity : saved) {
+                cachePut(entity);
+            }
+            return saved;
+        } catch (SQLException | RuntimeException e) {
+            groupInsertTimer.fail(start);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            logSqlFailure("insert", query, (SQLException) e);
+            throw new RuntimeException("Error inserting " + entities.size() + " entities into " + tableName + ": " + e.getMessage(), e);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * The insert query with its VALUES row repeated, e.g. INSERT INTO t (a, b) VALUES (?, ?), (?, ?)
+     */
+    private String multiRowInsert(int rows) {
+        return multiRowInsertSql.computeIfAbsent(rows, n -> {
+            String insert = insertSql();
+            int values = insert.toUpperCase(Locale.ROOT).lastIndexOf("VALUES");
+            if (values < 0 || parameterCount(insert) == 0) {
+                throw new IllegalStateException("Group commit needs an INSERT ... VALUES (...) query for " + tableName + ": " + insert);
+            }
+            if ((long) n * parameterCount(insert) > MAX_STATEMENT_PARAMETERS) {
+                throw new IllegalArgumentException("A " + n + "-row insert into " + tableName + " has more than "
+                        + MAX_STATEMENT_PARAMETERS + " parameters");
+            }
+            String row = insert.substring(values + "VALUES".length()).trim();
+            return insert.substring(0, values) + "VALUES " + String.join(", ", Collections.nCopies(n, row));
+        });
+    }
+
+    private static int parameterCount(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private T update(T entity) {
-        String query = getUpdateQuery();
+        String query = updateSql();
         
-        try (Connection connection = dbConfig.getConnection();
+        try (Connection connection = connect();
              PreparedStatement statement = connection.prepareStatement(query)) {
             
             setUpdateParameters(statement, entity);
             
             int affectedRows = statement.executeUpdate();
             if (affectedRows == 0) {
-                throw new RuntimeException("Entity not found for update in " + tableName);
+                throw new NoSuchElementException("Entity not found for update in " + tableName);
             }
             
             return entity;
         } catch (SQLException e) {
-            System.err.println("=== SQL Exception during update ===");
-            System.err.println("Table: " + tableName);
-            System.err.println("Query: " + query);
-            System.err.println("Error Code: " + e.getErrorCode());
-            System.err.println("SQL State: " + e.getSQLState());
-            System.err.println("Message: " + e.getMessage());
-            System.err.println("===================================");
-            e.printStackTrace();
+            logSqlFailure("update", query, e);
             throw new RuntimeException("Error updating entity in " + tableName + ": " + e.getMessage(), e);
         }
     }
 
+    private void logSqlFailure(String operation, String query, SQLException e) {
+        log.atError()
+                .setCause(e)
+                .addKeyValue("table", tableName)
+                .addKeyValue("sql", query)
+                .addKeyValue("errorCode", e.getErrorCode())
+                .addKeyValue("sqlState", e.getSQLState())
+                .log("SQL exception during {}", operation);
+    }
+
+    private void insertBatch(Connection connection, List<T> input, List<Integer> indexes, List<T> saved) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(insertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            int chunkSize = batchSize;
+            for (int from = 0; from < indexes.size(); from += chunkSize) {
+                int to = Math.min(from + chunkSize, indexes.size());
+                for (int i = from; i < to; i++) {
+                    setInsertParameters(statement, input.get(indexes.get(i)));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                // Keys come back in the order the rows were added to the batch
+                int i = from;
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    while (i < to && generatedKeys.next()) {
+                        int index = indexes.get(i++);
+                        saved.set(index, updateEntityWithId(input.get(index), getGeneratedId(generatedKeys)));
+                    }
+                }
+                if (i < to) {
+                    throw new RuntimeException("Failed to get generated IDs for " + (to - i) + " rows in " + tableName);
+                }
+            }
+        }
+    }
+
+    private void updateBatch(Connection connection, List<T> input, List<Integer> indexes) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(updateSql())) {
+            int chunkSize = batchSize;
+            for (int from = 0; from < indexes.size(); from += chunkSize) {
+                int to = Math.min(from + chunkSize, indexes.size());
+                for (int i = from; i < to; i++) {
+                    setUpdateParameters(statement, input.get(indexes.get(i)));
+                    statement.addBatch();
+                }
+
+                int[] counts = statement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // SUCCESS_NO_INFO is returned by drivers that rewrite batches
+                    if (counts[i] == 0) {
+                        throw new NoSuchElementException("Entity not found for update in " + tableName + ": " + input.get(indexes.get(from + i)));
+                    }
+                }
+            }
+        }
+    }
+
     // Abstract method to update entity with generated ID
     protected abstract T updateEntityWithId(T entity, ID id);
 }
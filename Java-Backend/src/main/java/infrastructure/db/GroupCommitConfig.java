@@ -0,0 +1,38 @@
+package infrastructure.db;
+
+import java.util.Properties;
+
+/**
+ * Settings for group-commit inserts, see {@link GenericJdbcRepository#setGroupCommit(GroupCommitConfig)}
+ * @param maxBatchSize rows written by one multi-row INSERT at most
+ * @param maxDelayMillis how long the first queued row waits for others before its batch is written
+ * @param queueCapacity queued rows at most; callers block while the queue is full
+ */
+public record GroupCommitConfig(int maxBatchSize, long maxDelayMillis, int queueCapacity) {
+
+    public GroupCommitConfig {
+        if (maxBatchSize < 1 || queueCapacity < maxBatchSize) {
+            throw new IllegalArgumentException("Invalid group commit sizes: maxBatchSize=" + maxBatchSize
+                    + ", queueCapacity=" + queueCapacity);
+        }
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid group commit delay: " + maxDelayMillis);
+        }
+    }
+
+    public static GroupCommitConfig defaults() {
+        return new GroupCommitConfig(256, 2, 4096);
+    }
+
+    /**
+     * Read db.groupCommit.* keys, falling back to the defaults for missing ones
+     */
+    public static GroupCommitConfig fromProperties(Properties props) {
+        GroupCommitConfig d = defaults();
+        return new GroupCommitConfig(
+                Integer.parseInt(props.getProperty("db.groupCommit.maxBatchSize", String.valueOf(d.maxBatchSize()))),
+                Long.parseLong(props.getProperty("db.groupCommit.maxDelayMillis", String.valueOf(d.maxDelayMillis()))),
+                Integer.parseInt(props.getProperty("db.groupCommit.queueCapacity", String.valueOf(d.queueCapacity())))
+        );
+    }
+}
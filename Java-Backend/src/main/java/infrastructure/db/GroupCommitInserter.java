@@ -0,0 +1,162 @@
+package infrastructure.db;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues inserts from many threads and writes them from a single flusher thread, one
+ * multi-row statement per batch. A batch is written when it reaches maxBatchSize rows or
+ * maxDelayMillis after its first row was queued, whichever comes first. If a batch fails its
+ * rows are retried one by one, so a single bad row does not fail everyone queued with it.
+ */
+final class GroupCommitInserter<T> implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitInserter.class);
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Insert all rows in one statement and return them with their generated ids, in input order
+     */
+    interface BatchInsert<T> {
+        List<T> insert(List<T> entities);
+    }
+
+    private record Pending<T>(T entity, CompletableFuture<T> result) {
+    }
+
+    private final String tableName;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BatchInsert<T> batchInsert;
+    private final BlockingQueue<Pending<T>> queue;
+    private final Thread flusher;
+    private final Counter flushes;
+    private final Counter rows;
+    private volatile boolean closed;
+
+    GroupCommitInserter(String tableName, GroupCommitConfig config, BatchInsert<T> batchInsert) {
+        this.tableName = tableName;
+        this.maxBatchSize = config.maxBatchSize();
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.maxDelayMillis());
+        this.batchInsert = batchInsert;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        this.flushes = MetricsRegistry.global().counter("db_group_commit_flushes_total",
+                "Multi-row inserts written by group commit", "table", tableName);
+        this.rows = MetricsRegistry.global().counter("db_group_commit_rows_total",
+                "Rows inserted by group commit", "table", tableName);
+
+        this.flusher = new Thread(this::run, "group-commit-" + tableName);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queue an insert, blocking while the queue is full
+     * @return completes with the saved entity once its batch is written
+     */
+    CompletableFuture<T> submit(T entity) {
+        if (closed) {
+            throw new IllegalStateException("Group commit for " + tableName + " is closed");
+        }
+        Pending<T> pending = new Pending<>(entity, new CompletableFuture<>());
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing insert into " + tableName, e);
+        }
+        // Closed while this was being queued and the flusher may already be gone
+        if (closed && queue.remove(pending)) {
+            pending.result().completeExceptionally(new IllegalStateException("Group commit for " + tableName + " is closed"));
+        }
+        return pending.result();
+    }
+
+    /**
+     * Stop accepting inserts and wait for the queued ones to be written
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending<T>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending<T> first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch, System.nanoTime() + maxDelayNanos);
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RuntimeException failure = new IllegalStateException("Group commit for " + tableName + " was interrupted");
+            batch.forEach(pending -> pending.result().completeExceptionally(failure));
+            queue.forEach(pending -> pending.result().completeExceptionally(failure));
+        }
+    }
+
+    /**
+     * Fill the batch until it is full or the deadline passes
+     */
+    private void collect(List<Pending<T>> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Pending<T>> batch) {
+        List<T> entities = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            entities.add(pending.entity());
+        }
+
+        try {
+            List<T> saved = batchInsert.insert(entities);
+            flushes.increment();
+            rows.add(saved.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Group insert of {} rows into {} failed, retrying them one by one: {}",
+                    batch.size(), tableName, e.getMessage());
+            for (Pending<T> pending : batch) {
+                flush(List.of(pending));
+            }
+        }
+    }
+}
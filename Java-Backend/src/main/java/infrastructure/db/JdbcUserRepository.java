@@ -1,12 +1,17 @@
 package infrastructure.db;
 
+import domain.common.Page;
 import domain.user.User;
 import ports.user.UserRepository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import java.sql.*;
 
 public class JdbcUserRepository extends GenericJdbcRepository<User, Long> implements UserRepository {
+    private static final List<String> COLUMNS = List.of("id", "name", "email");
     
     public JdbcUserRepository(DbConfig dbConfig) {
         super(dbConfig, "users"); // Default table name
@@ -21,6 +26,21 @@ public class JdbcUserRepository extends GenericJdbcRepository<User, Long> implem
         return super.findAll();
     }
 
+    @Override
+    public Stream<User> streamAll() {
+        return super.streamAll();
+    }
+
+    @Override
+    public Page<User> findPage(long after, int limit) {
+        return super.findPage((Long) after, limit);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findPage(long after, int limit, List<String> fields) {
+        return super.findPage((Long) after, limit, fields);
+    }
+
     @Override
     public Optional<User> findBydId(long id) {
         return super.findById(id);
@@ -31,12 +51,29 @@ public class JdbcUserRepository extends GenericJdbcRepository<User, Long> implem
         return super.save(user);
     }
 
+    @Override
+    public List<User> saveAll(Collection<User> users) {
+        return super.saveAll(users);
+    }
+
+    @Override
+    public boolean updateFields(long id, Map<String, Object> fields) {
+        return super.updateFields((Long) id, fields);
+    }
+
+    @Override
+    public boolean deleteById(long id) {
+        return super.deleteById((Long) id);
+    }
+
     // Find users by email
+    @Override
     public Optional<User> findByEmail(String email) {
         return findOneByCustomQuery("email = ?", email);
     }
 
     // Find users by name pattern
+    @Override
     public List<User> findByNameContaining(String namePattern) {
         return findByCustomQuery("name LIKE ?", "%" + namePattern + "%");
     }
@@ -51,6 +88,11 @@ public class JdbcUserRepository extends GenericJdbcRepository<User, Long> implem
         );
     }
 
+    @Override
+    protected List<String> getColumns() {
+        return COLUMNS;
+    }
+
     @Override
     protected String getInsertQuery() {
         return "INSERT INTO " + tableName + " (name, email) VALUES (?, ?)";
@@ -79,6 +121,11 @@ public class JdbcUserRepository extends GenericJdbcRepository<User, Long> implem
         return user.id() == 0;
     }
 
+    @Override
+    protected Long getId(User user) {
+        return user.id();
+    }
+
     @Override
     protected void setIdParameter(PreparedStatement statement, int parameterIndex, Long id) throws SQLException {
         statement.setLong(parameterIndex, id);
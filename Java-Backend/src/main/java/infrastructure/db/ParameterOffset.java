@@ -0,0 +1,43 @@
+package infrastructure.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+/**
+ * PreparedStatement view whose parameter setters are shifted by a fixed offset, so code that
+ * binds one row from index 1 can fill any row of a multi-row INSERT
+ */
+final class ParameterOffset implements InvocationHandler {
+    private final PreparedStatement statement;
+    private final int offset;
+
+    private ParameterOffset(PreparedStatement statement, int offset) {
+        this.statement = statement;
+        this.offset = offset;
+    }
+
+    static PreparedStatement shift(PreparedStatement statement, int offset) {
+        if (offset == 0) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new ParameterOffset(statement, offset));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        // Every setter declared by PreparedStatement itself takes the parameter index first
+        if (method.getDeclaringClass() == PreparedStatement.class && method.getName().startsWith("set")
+                && args != null && args.length > 0 && args[0] instanceof Integer index) {
+            args[0] = index + offset;
+        }
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
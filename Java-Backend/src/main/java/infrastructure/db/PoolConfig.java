@@ -0,0 +1,57 @@
+package infrastructure.db;
+
+import java.util.Properties;
+
+/**
+ * Connection pool settings
+ * @param minIdle connections kept open even when idle
+ * @param maxSize hard upper bound on open connections
+ * @param connectionTimeoutMillis how long getConnection waits for a free connection
+ * @param validationTimeoutSeconds timeout passed to Connection.isValid on borrow
+ * @param validateAfterIdleMillis connections idle for longer than this are validated on borrow
+ * @param idleTimeoutMillis idle connections above minIdle are closed after this long
+ * @param maxLifetimeMillis connections are retired after this age, regardless of use
+ * @param housekeepingPeriodMillis how often idle eviction and refilling run
+ * @param statementCacheSize prepared statements cached per connection (0 disables the cache)
+ */
+public record PoolConfig(int minIdle,
+                         int maxSize,
+                         long connectionTimeoutMillis,
+                         int validationTimeoutSeconds,
+                         long validateAfterIdleMillis,
+                         long idleTimeoutMillis,
+                         long maxLifetimeMillis,
+                         long housekeepingPeriodMillis,
+                         int statementCacheSize) {
+
+    public PoolConfig {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+        }
+    }
+
+    public static PoolConfig defaults() {
+        return new PoolConfig(2, 10, 5_000, 2, 500, 600_000, 1_800_000, 30_000, 64);
+    }
+
+    /**
+     * Read db.pool.* keys, falling back to the defaults for missing ones
+     */
+    public static PoolConfig fromProperties(Properties props) {
+        PoolConfig d = defaults();
+        return new PoolConfig(
+                Integer.parseInt(props.getProperty("db.pool.minIdle", String.valueOf(d.minIdle()))),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(d.maxSize()))),
+                Long.parseLong(props.getProperty("db.pool.connectionTimeoutMillis", String.valueOf(d.connectionTimeoutMillis()))),
+                Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", String.valueOf(d.validationTimeoutSeconds()))),
+                Long.parseLong(props.getProperty("db.pool.validateAfterIdleMillis", String.valueOf(d.validateAfterIdleMillis()))),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", String.valueOf(d.idleTimeoutMillis()))),
+                Long.parseLong(props.getProperty("db.pool.maxLifetimeMillis", String.valueOf(d.maxLifetimeMillis()))),
+                Long.parseLong(props.getProperty("db.pool.housekeepingPeriodMillis", String.valueOf(d.housekeepingPeriodMillis()))),
+                Integer.parseInt(props.getProperty("db.pool.statementCacheSize", String.valueOf(d.statementCacheSize())))
+        );
+    }
+}
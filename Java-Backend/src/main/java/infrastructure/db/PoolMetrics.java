@@ -0,0 +1,22 @@
+package infrastructure.db;
+
+/**
+ * Point-in-time view of a connection pool
+ * @param waitTimeBucketsMicros upper bounds of the wait-time histogram buckets (last one is open-ended)
+ * @param waitTimeCounts number of borrows per bucket
+ * @param statementCacheHits prepareStatement calls served from a connection's statement cache
+ * @param statementCacheMisses prepareStatement calls that had to prepare a new statement
+ */
+public record PoolMetrics(int active,
+                          int idle,
+                          int total,
+                          int waiters,
+                          long borrowed,
+                          long timeouts,
+                          long created,
+                          long destroyed,
+                          long[] waitTimeBucketsMicros,
+                          long[] waitTimeCounts,
+                          long statementCacheHits,
+                          long statementCacheMisses) {
+}
@@ -0,0 +1,5 @@
+package infrastructure.db;
+
+// Example Product record
+record Product(long id, String name, String description, double price, String category) {
+}
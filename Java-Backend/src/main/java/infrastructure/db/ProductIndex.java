@@ -0,0 +1,300 @@
+package infrastructure.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, indexed snapshot of the products table.
+ * Products are held in id order; a sorted double[] of prices (with the matching ids)
+ * answers range queries by binary search, a BitSet of ids per category answers category
+ * queries, and a hash map answers exact name lookups. Writes produce a new snapshot that
+ * shares every untouched structure with the previous one.
+ */
+final class ProductIndex {
+    private static final ProductIndex EMPTY = new ProductIndex(new long[0], new Product[0],
+            new double[0], new long[0], Map.of(), Map.of());
+
+    private final long[] ids;
+    private final Product[] products;
+    private final double[] prices;
+    private final long[] priceIds;
+    private final Map<String, BitSet> categories;
+    private final Map<String, Long> names;
+
+    private ProductIndex(long[] ids, Product[] products, double[] prices, long[] priceIds,
+                         Map<String, BitSet> categories, Map<String, Long> names) {
+        this.ids = ids;
+        this.products = products;
+        this.prices = prices;
+        this.priceIds = priceIds;
+        this.categories = categories;
+        this.names = names;
+    }
+
+    /**
+     * Snapshot of all the products, built in one pass (sorts, no per-row copies); for a repeated
+     * id the last product wins, as with repeated {@link #with} calls
+     */
+    static ProductIndex of(Collection<Product> all) {
+        Product[] sorted = all.toArray(new Product[0]);
+        for (Product product : sorted) {
+            checkId(product.id());
+        }
+        // Stable, so the last of a run of equal ids is the one given last
+        Arrays.sort(sorted, Comparator.comparingLong(Product::id));
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i + 1 < sorted.length && sorted[i + 1].id() == sorted[i].id()) {
+                continue;
+            }
+            sorted[count++] = sorted[i];
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        Product[] products = Arrays.copyOf(sorted, count);
+        long[] ids = new long[count];
+        Map<String, BitSet> categories = new HashMap<>();
+        Map<String, Long> names = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Product product = products[i];
+            ids[i] = product.id();
+            if (product.category() != null) {
+                categories.computeIfAbsent(product.category(), category -> new BitSet()).set((int) product.id());
+            }
+            if (product.name() != null) {
+                // Id order, so the lowest id keeps the name
+                names.putIfAbsent(product.name(), product.id());
+            }
+        }
+
+        Product[] byPrice = products.clone();
+        Arrays.sort(byPrice, Comparator.comparingDouble(Product::price));
+        double[] prices = new double[count];
+        long[] priceIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            prices[i] = byPrice[i].price();
+            priceIds[i] = byPrice[i].id();
+        }
+        return new ProductIndex(ids, products, prices, priceIds, categories, names);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    Optional<Product> findById(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        return position >= 0 ? Optional.of(products[position]) : Optional.empty();
+    }
+
+    /**
+     * Products with minPrice &lt;= price &lt;= maxPrice, cheapest first
+     */
+    List<Product> findByPriceRange(double minPrice, double maxPrice) {
+        int from = lowerBound(prices, minPrice);
+        int to = upperBound(prices, maxPrice);
+        List<Product> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(products[Arrays.binarySearch(ids, priceIds[i])]);
+        }
+        return result;
+    }
+
+    /**
+     * Products in the category, in id order
+     */
+    List<Product> findByCategory(String category) {
+        BitSet members = categories.get(category);
+        if (members == null) {
+            return List.of();
+        }
+        List<Product> result = new ArrayList<>(members.cardinality());
+        for (int id = members.nextSetBit(0); id >= 0; id = members.nextSetBit(id + 1)) {
+            result.add(products[Arrays.binarySearch(ids, id)]);
+        }
+        return result;
+    }
+
+    Optional<Product> findByName(String name) {
+        Long id = names.get(name);
+        return id != null ? findById(id) : Optional.empty();
+    }
+
+    /**
+     * Snapshot with the product inserted, or replacing the one with the same id
+     */
+    ProductIndex with(Product product) {
+        checkId(product.id());
+        ProductIndex base = findById(product.id()).map(old -> without(old.id())).orElse(this);
+        return base.insert(product);
+    }
+
+    /**
+     * Snapshot without the product with that id (this one if it is absent)
+     */
+    ProductIndex without(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return this;
+        }
+        Product old = products[position];
+
+        int pricePosition = pricePosition(old.price(), id);
+
+        Map<String, BitSet> newCategories = categories;
+        if (old.category() != null) {
+            newCategories = new HashMap<>(categories);
+            BitSet members = (BitSet) categories.get(old.category()).clone();
+            members.clear((int) id);
+            if (members.isEmpty()) {
+                newCategories.remove(old.category());
+            } else {
+                newCategories.put(old.category(), members);
+            }
+        }
+
+        Map<String, Long> newNames = names;
+        if (old.name() != null && Long.valueOf(id).equals(names.get(old.name()))) {
+            newNames = new HashMap<>(names);
+            newNames.remove(old.name());
+            // Another product may share the name; keep the lowest id, as the table scan would find
+            for (Product product : products) {
+                if (product.id() != id && old.name().equals(product.name())) {
+                    newNames.put(old.name(), product.id());
+                    break;
+                }
+            }
+        }
+
+        return new ProductIndex(removeAt(ids, position), removeAt(products, position),
+                removeAt(prices, pricePosition), removeAt(priceIds, pricePosition), newCategories, newNames);
+    }
+
+    private ProductIndex insert(Product product) {
+        long id = product.id();
+        int position = -Arrays.binarySearch(ids, id) - 1;
+        int pricePosition = upperBound(prices, product.price());
+
+        Map<String, BitSet> newCategories = categories;
+        if (product.category() != null) {
+            newCategories = new HashMap<>(categories);
+            BitSet members = categories.get(product.category());
+            members = members != null ? (BitSet) members.clone() : new BitSet();
+            members.set((int) id);
+            newCategories.put(product.category(), members);
+        }
+
+        Map<String, Long> newNames = names;
+        if (product.name() != null) {
+            Long existing = names.get(product.name());
+            if (existing == null || existing > id) {
+                newNames = new HashMap<>(names);
+                newNames.put(product.name(), id);
+            }
+        }
+
+        return new ProductIndex(insertAt(ids, position, id), insertAt(products, position, product),
+                insertAt(prices, pricePosition, product.price()), insertAt(priceIds, pricePosition, id),
+                newCategories, newNames);
+    }
+
+    private int pricePosition(double price, long id) {
+        for (int i = lowerBound(prices, price); i < prices.length; i++) {
+            if (priceIds[i] == id) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Price index is missing product " + id);
+    }
+
+    // Category sets are BitSets of ids, so ids must fit in an int
+    private static void checkId(long id) {
+        if (id <= 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Product id out of indexable range: " + id);
+        }
+    }
+
+    // First index with prices[i] >= value
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index with prices[i] > value
+    private static int upperBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long[] insertAt(long[] array, int position, long value) {
+        long[] copy = new long[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(array, position, copy, position + 1, array.length - position);
+        return copy;
+    }
+
+    private static double[] insertAt(double[] array, int position, double value) {
+        double[] copy = new double[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(array, position, copy, position + 1, array.length - position);
+        return copy;
+    }
+
+    private static Product[] insertAt(Product[] array, int position, Product value) {
+        Product[] copy = new Product[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(array, position, copy, position + 1, array.length - position);
+        return copy;
+    }
+
+    private static long[] removeAt(long[] array, int position) {
+        long[] copy = new long[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        System.arraycopy(array, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+
+    private static double[] removeAt(double[] array, int position) {
+        double[] copy = new double[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        System.arraycopy(array, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+
+    private static Product[] removeAt(Product[] array, int position) {
+        Product[] copy = new Product[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        System.arraycopy(array, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+}
@@ -3,7 +3,9 @@ package infrastructure.db;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -11,6 +13,11 @@ import java.util.Optional;
  * This example shows a Product domain
  */
 public class ProductRepository extends GenericJdbcRepository<Product, Long> {
+    private static final List<String> COLUMNS = List.of("id", "name", "description", "price", "category");
+
+    // In-memory snapshot answering the lookups below; null until enableIndex() is called
+    private volatile ProductIndex index;
+    private final Object indexLock = new Object();
     
     public ProductRepository(DbConfig dbConfig) {
         super(dbConfig, "products"); // Default table name
@@ -20,17 +27,97 @@ public class ProductRepository extends GenericJdbcRepository<Product, Long> {
         super(dbConfig, tableName); // Custom table name
     }
 
+    /**
+     * Load the table into an indexed in-memory snapshot and answer category, price range, name
+     * and id lookups from it. Writes made through this repository keep the snapshot current;
+     * call it again to pick up changes made elsewhere.
+     */
+    public void enableIndex() {
+        synchronized (indexLock) {
+            index = ProductIndex.of(findAll());
+        }
+    }
+
+    public void disableIndex() {
+        synchronized (indexLock) {
+            index = null;
+        }
+    }
+
+    public boolean isIndexEnabled() {
+        return index != null;
+    }
+
     // Domain-specific methods
     public List<Product> findByCategory(String category) {
-        return findByCustomQuery("category = ?", category);
+        ProductIndex snapshot = index;
+        return snapshot != null ? snapshot.findByCategory(category) : findByCustomQuery("category = ?", category);
     }
 
     public List<Product> findByPriceRange(double minPrice, double maxPrice) {
-        return findByCustomQuery("price BETWEEN ? AND ?", minPrice, maxPrice);
+        ProductIndex snapshot = index;
+        return snapshot != null
+                ? snapshot.findByPriceRange(minPrice, maxPrice)
+                : findByCustomQuery("price BETWEEN ? AND ?", minPrice, maxPrice);
     }
 
     public Optional<Product> findByName(String name) {
-        return findOneByCustomQuery("name = ?", name);
+        ProductIndex snapshot = index;
+        return snapshot != null ? snapshot.findByName(name) : findOneByCustomQuery("name = ?", name);
+    }
+
+    @Override
+    public Optional<Product> findById(Long id) {
+        ProductIndex snapshot = index;
+        return snapshot != null ? snapshot.findById(id) : super.findById(id);
+    }
+
+    @Override
+    public Product save(Product product) {
+        Product saved = super.save(product);
+        updateIndex(List.of(saved));
+        return saved;
+    }
+
+    @Override
+    public List<Product> saveAll(Collection<Product> products) {
+        List<Product> saved = super.saveAll(products);
+        updateIndex(saved);
+        return saved;
+    }
+
+    @Override
+    public boolean updateFields(Long id, Map<String, ?> fields) {
+        boolean updated = super.updateFields(id, fields);
+        // The snapshot needs the whole row, so this is the one case that reads after writing
+        if (updated && index != null) {
+            super.findById(id).ifPresent(product -> updateIndex(List.of(product)));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        boolean deleted = super.deleteById(id);
+        synchronized (indexLock) {
+            if (index != null) {
+                index = index.without(id);
+            }
+        }
+        return deleted;
+    }
+
+    private void updateIndex(List<Product> saved) {
+        synchronized (indexLock) {
+            ProductIndex snapshot = index;
+            if (snapshot == null) {
+                return;
+            }
+            for (Product product : saved) {
+                snapshot = snapshot.with(product);
+            }
+            index = snapshot;
+        }
     }
 
     // Implementation of abstract methods
@@ -45,6 +132,11 @@ public class ProductRepository extends GenericJdbcRepository<Product, Long> {
         );
     }
 
+    @Override
+    protected List<String> getColumns() {
+        return COLUMNS;
+    }
+
     @Override
     protected String getInsertQuery() {
         return "INSERT INTO " + tableName + " (name, description, price, category) VALUES (?, ?, ?, ?)";
@@ -77,6 +169,11 @@ public class ProductRepository extends GenericJdbcRepository<Product, Long> {
         return product.id() == 0;
     }
 
+    @Override
+    protected Long getId(Product product) {
+        return product.id();
+    }
+
     @Override
     protected void setIdParameter(PreparedStatement statement, int parameterIndex, Long id) throws SQLException {
         statement.setLong(parameterIndex, id);
@@ -92,7 +189,3 @@ public class ProductRepository extends GenericJdbcRepository<Product, Long> {
         return new Product(id, product.name(), product.description(), product.price(), product.category());
     }
 }
-
-// Example Product record
-record Product(long id, String name, String description, double price, String category) {
-}
@@ -0,0 +1,58 @@
+package infrastructure.db;
+
+import java.util.Properties;
+
+/**
+ * Limits applied to one repository's database calls, see {@link GenericJdbcRepository#setResilience(ResilienceConfig)}
+ * @param maxConcurrentCalls bulkhead size: calls holding a connection at the same time
+ * @param maxWaitMillis how long a call waits for a bulkhead slot before failing
+ * @param queryTimeoutSeconds statement timeout passed to setQueryTimeout (0 for none)
+ * @param failureRateThreshold fraction (0..1] of failed calls in the window that opens the circuit
+ * @param minimumCalls calls the window needs before the failure rate is evaluated
+ * @param windowSize most recent calls the failure rate is computed over
+ * @param openMillis how long the circuit stays open before probing
+ * @param halfOpenProbes trial calls let through while half-open; all must succeed to close
+ */
+public record ResilienceConfig(int maxConcurrentCalls,
+                               long maxWaitMillis,
+                               int queryTimeoutSeconds,
+                               double failureRateThreshold,
+                               int minimumCalls,
+                               int windowSize,
+                               long openMillis,
+                               int halfOpenProbes) {
+
+    public ResilienceConfig {
+        if (maxConcurrentCalls < 1 || maxWaitMillis < 0 || queryTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("Invalid bulkhead config: maxConcurrentCalls=" + maxConcurrentCalls
+                    + ", maxWaitMillis=" + maxWaitMillis + ", queryTimeoutSeconds=" + queryTimeoutSeconds);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || minimumCalls < 1 || windowSize < minimumCalls
+                || openMillis < 0 || halfOpenProbes < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker config: failureRateThreshold=" + failureRateThreshold
+                    + ", minimumCalls=" + minimumCalls + ", windowSize=" + windowSize + ", openMillis=" + openMillis
+                    + ", halfOpenProbes=" + halfOpenProbes);
+        }
+    }
+
+    public static ResilienceConfig defaults() {
+        return new ResilienceConfig(16, 100, 5, 0.5, 20, 100, 5_000, 3);
+    }
+
+    /**
+     * Read db.resilience.* keys, falling back to the defaults for missing ones
+     */
+    public static ResilienceConfig fromProperties(Properties props) {
+        ResilienceConfig d = defaults();
+        return new ResilienceConfig(
+                Integer.parseInt(props.getProperty("db.resilience.maxConcurrentCalls", String.valueOf(d.maxConcurrentCalls()))),
+                Long.parseLong(props.getProperty("db.resilience.maxWaitMillis", String.valueOf(d.maxWaitMillis()))),
+                Integer.parseInt(props.getProperty("db.resilience.queryTimeoutSeconds", String.valueOf(d.queryTimeoutSeconds()))),
+                Double.parseDouble(props.getProperty("db.resilience.failureRateThreshold", String.valueOf(d.failureRateThreshold()))),
+                Integer.parseInt(props.getProperty("db.resilience.minimumCalls", String.valueOf(d.minimumCalls()))),
+                Integer.parseInt(props.getProperty("db.resilience.windowSize", String.valueOf(d.windowSize()))),
+                Long.parseLong(props.getProperty("db.resilience.openMillis", String.valueOf(d.openMillis()))),
+                Integer.parseInt(props.getProperty("db.resilience.halfOpenProbes", String.valueOf(d.halfOpenProbes())))
+        );
+    }
+}
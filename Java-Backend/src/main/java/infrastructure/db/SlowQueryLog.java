@@ -0,0 +1,71 @@
+package infrastructure.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs statements slower than a threshold to the "slow-query" logger, with SQL, table,
+ * duration and row count as key/value pairs. Fast statements cost one comparison; above
+ * the threshold only a sampled fraction is logged so a database stall cannot flood the log.
+ */
+public class SlowQueryLog {
+    private static final Logger log = LoggerFactory.getLogger("slow-query");
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final LongAdder slowQueries = new LongAdder();
+
+    /**
+     * @param thresholdMillis statements taking at least this long are slow
+     * @param sampleRate fraction (0..1] of slow statements that are logged
+     */
+    public SlowQueryLog(long thresholdMillis, double sampleRate) {
+        if (thresholdMillis < 0 || sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Invalid slow query log config: thresholdMillis=" + thresholdMillis
+                    + ", sampleRate=" + sampleRate);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+    }
+
+    public static SlowQueryLog defaults() {
+        return new SlowQueryLog(200, 1.0);
+    }
+
+    /**
+     * Read db.slowQuery.thresholdMillis and db.slowQuery.sampleRate, falling back to the defaults
+     */
+    public static SlowQueryLog fromProperties(Properties props) {
+        return new SlowQueryLog(
+                Long.parseLong(props.getProperty("db.slowQuery.thresholdMillis", "200")),
+                Double.parseDouble(props.getProperty("db.slowQuery.sampleRate", "1.0")));
+    }
+
+    public void record(String table, String sql, long durationNanos, long rows) {
+        if (durationNanos < thresholdNanos) {
+            return;
+        }
+        slowQueries.increment();
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        log.atWarn()
+                .addKeyValue("table", table)
+                .addKeyValue("durationMs", TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .addKeyValue("rows", rows)
+                .addKeyValue("sql", sql)
+                .log("Slow query");
+    }
+
+    /**
+     * Slow statements seen, including the ones not sampled into the log
+     */
+    public long slowQueryCount() {
+        return slowQueries.sum();
+    }
+}
@@ -0,0 +1,167 @@
+package infrastructure.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Closing a cached statement only clears its parameters and batch, so hot queries keep reusing
+ * the same (server-side, with useServerPrepStmts=true) prepared statement.
+ * Not thread-safe: a pooled connection is only used by its current borrower.
+ */
+final class StatementCache {
+    private record Key(String sql, int autoGeneratedKeys) {
+    }
+
+    private final Map<Key, CachedStatement> statements;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses) {
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Return a cached statement for the SQL, preparing and caching it on a miss
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS / NO_GENERATED_KEYS
+     */
+    PreparedStatement prepare(Connection raw, Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        CachedStatement cached = statements.get(key);
+
+        if (cached != null && !cached.inUse && !cached.raw.isClosed()) {
+            hits.increment();
+            return cached.lend(owner);
+        }
+
+        misses.increment();
+        PreparedStatement statement = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                ? raw.prepareStatement(sql)
+                : raw.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null && cached.inUse) {
+            // Same SQL already open on this connection; hand out an uncached statement
+            return statement;
+        }
+
+        cached = new CachedStatement(statement);
+        statements.put(key, cached);
+        return cached.lend(owner);
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement raw;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement raw) {
+            this.raw = raw;
+        }
+
+        PreparedStatement lend(Connection owner) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new Handle(this, owner));
+        }
+
+        void giveBack() {
+            inUse = false;
+            try {
+                if (evicted) {
+                    raw.close();
+                } else {
+                    // Rows added by a batch that failed before executeBatch must not run with the next one
+                    raw.clearParameters();
+                    raw.clearBatch();
+                    raw.clearWarnings();
+                }
+            } catch (SQLException e) {
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                raw.close();
+            } catch (SQLException ignored) {
+                // Statement is being discarded
+            }
+        }
+    }
+
+    /**
+     * Borrower-facing statement: close() returns it to the cache
+     */
+    private static final class Handle implements InvocationHandler {
+        private final CachedStatement statement;
+        private final Connection owner;
+        private boolean closed;
+
+        Handle(CachedStatement statement, Connection owner) {
+            this.statement = statement;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        statement.giveBack();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                }
+            }
+
+            try {
+                return method.invoke(statement.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package infrastructure.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash map from long keys to values that never boxes its keys.
+ * Keys are spread over segments, each an open-addressing table with linear probing
+ * guarded by a StampedLock: reads are optimistic (lock-free unless they race a write)
+ * and writes lock a single segment. Key 0 is reserved as the empty-slot marker,
+ * which matches the repositories' use of id 0 for unsaved entities.
+ * @param <V> The value type
+ */
+public final class ConcurrentLongMap<V> {
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongMap() {
+        this(16, 1024);
+    }
+
+    /**
+     * @param concurrency expected number of concurrent writers, rounded up to a power of two
+     * @param initialCapacity expected number of entries
+     */
+    public ConcurrentLongMap(int concurrency, int initialCapacity) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, concurrency - 1) << 1);
+        int perSegment = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, initialCapacity / segmentCount) << 2));
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        checkKey(key);
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+
+        long stamp = segment.tryOptimisticRead();
+        Object value = segment.find(key, hash);
+        if (!segment.validate(stamp)) {
+            stamp = segment.readLock();
+            try {
+                value = segment.find(key, hash);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return (V) value;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        checkKey(key);
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+
+        long stamp = segment.writeLock();
+        try {
+            return (V) segment.put(key, hash, value);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        checkKey(key);
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+
+        long stamp = segment.writeLock();
+        try {
+            return (V) segment.remove(key, hash);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Snapshot of the values, one segment at a time and in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                for (Object value : segment.table.values) {
+                    if (value != null) {
+                        values.add((V) value);
+                    }
+                }
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            long stamp = segment.writeLock();
+            try {
+                segment.table = new Table(MIN_CAPACITY);
+                segment.size = 0;
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+
+    // Murmur3 finalizer: sequential ids must not cluster in the probe sequence
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Keys and values are swapped together on resize, so an optimistic reader always
+     * sees arrays of the same length
+     */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        Table table;
+        int size;
+
+        Segment(int capacity) {
+            table = new Table(capacity);
+        }
+
+        Object find(long key, long hash) {
+            Table t = table;
+            long[] keys = t.keys;
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            // Bounded so a reader racing a writer cannot spin forever; validation catches misses
+            for (int probes = 0; probes <= mask; probes++) {
+                long k = keys[slot];
+                if (k == key) {
+                    return t.values[slot];
+                }
+                if (k == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        Object put(long key, long hash, Object value) {
+            Table t = table;
+            int mask = t.keys.length - 1;
+            int slot = (int) hash & mask;
+            while (true) {
+                long k = t.keys[slot];
+                if (k == key) {
+                    Object previous = t.values[slot];
+                    t.values[slot] = value;
+                    return previous;
+                }
+                if (k == EMPTY) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // New key: grow first if that would push the load factor above 1/2
+            if ((size + 1) * 2 > t.keys.length) {
+                t = resize(t);
+                mask = t.keys.length - 1;
+                slot = (int) hash & mask;
+                while (t.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+            }
+            t.values[slot] = value;
+            t.keys[slot] = key;
+            size++;
+            return null;
+        }
+
+        Object remove(long key, long hash) {
+            Table t = table;
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            Object previous = values[slot];
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int ideal = (int) mix(keys[next]) & mask;
+                boolean movable = hole <= next
+                        ? ideal <= hole || ideal > next
+                        : ideal <= hole && ideal > next;
+                if (movable) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            values[hole] = null;
+            size--;
+            return previous;
+        }
+
+        private Table resize(Table old) {
+            Table grown = new Table(old.keys.length << 1);
+            int mask = grown.keys.length - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                long key = old.keys[i];
+                if (key != EMPTY) {
+                    int slot = (int) mix(key) & mask;
+                    while (grown.keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    grown.keys[slot] = key;
+                    grown.values[slot] = old.values[i];
+                }
+            }
+            table = grown;
+            return grown;
+        }
+    }
+}
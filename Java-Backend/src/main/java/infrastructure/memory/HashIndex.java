@@ -0,0 +1,59 @@
+package infrastructure.memory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Equality index: key extracted from the entity to the ids having it
+ * @param <T> The entity type
+ */
+public class HashIndex<T> implements Index<T> {
+    private static final long[] NONE = new long[0];
+
+    private final Function<? super T, ?> keyFunction;
+    private final Map<Object, Set<Long>> ids = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyFunction extracts the indexed key; null keys are not indexed
+     */
+    public HashIndex(Function<? super T, ?> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    @Override
+    public void add(long id, T entity) {
+        Object key = keyFunction.apply(entity);
+        if (key != null) {
+            ids.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    @Override
+    public void remove(long id, T entity) {
+        Object key = keyFunction.apply(entity);
+        if (key != null) {
+            ids.computeIfPresent(key, (k, set) -> {
+                set.remove(id);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    @Override
+    public void clear() {
+        ids.clear();
+    }
+
+    /**
+     * Ids of entities whose key equals the given one, in ascending order
+     */
+    public long[] find(Object key) {
+        Set<Long> matches = ids.get(key);
+        if (matches == null) {
+            return NONE;
+        }
+        return matches.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+}
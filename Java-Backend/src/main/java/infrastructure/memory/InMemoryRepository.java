@@ -0,0 +1,304 @@
+package infrastructure.memory;
+
+import domain.common.Page;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * In-process counterpart of GenericJdbcRepository for record entities with long ids.
+ * Entities live in a ConcurrentLongMap; ids come from a sequence, so pages are read by
+ * walking ids upwards from the cursor. Secondary indexes registered with addIndex are
+ * kept in step with every write.
+ * @param <T> The domain entity type (a record)
+ */
+public class InMemoryRepository<T extends Record> {
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Copies an entity with its newly assigned id
+     */
+    @FunctionalInterface
+    public interface IdAssigner<T> {
+        T withId(T entity, long id);
+    }
+
+    protected final String name;
+    private final ToLongFunction<T> idOf;
+    private final IdAssigner<T> idAssigner;
+    private final ConcurrentLongMap<T> entities = new ConcurrentLongMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final List<Index<T>> indexes = new CopyOnWriteArrayList<>();
+    private final Map<String, MethodHandle> columns = new LinkedHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public InMemoryRepository(Class<T> type, ToLongFunction<T> idOf, IdAssigner<T> idAssigner) {
+        this.name = type.getSimpleName();
+        this.idOf = idOf;
+        this.idAssigner = idAssigner;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        // Record components are the projectable columns, like getColumns() for JDBC tables
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (RecordComponent component : type.getRecordComponents()) {
+                Method accessor = component.getAccessor();
+                accessor.setAccessible(true);
+                columns.put(component.getName(),
+                        lookup.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class)));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read components of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Register a secondary index; existing entities are added to it
+     */
+    public <I extends Index<T>> I addIndex(I index) {
+        for (T entity : entities.values()) {
+            index.add(idOf.applyAsLong(entity), entity);
+        }
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Find all entities, in id order
+     */
+    public List<T> findAll() {
+        List<T> all = entities.values();
+        all.sort(Comparator.comparingLong(idOf));
+        return all;
+    }
+
+    /**
+     * Lazily walk all entities in id order
+     */
+    public Stream<T> streamAll() {
+        return LongStream.rangeClosed(1, sequence.get())
+                .mapToObj(entities::get)
+                .filter(entity -> entity != null);
+    }
+
+    public Optional<T> findById(long id) {
+        return id == 0 ? Optional.empty() : Optional.ofNullable(entities.get(id));
+    }
+
+    /**
+     * Entities with an id greater than after, in id order; cost is the page size plus deleted ids skipped
+     */
+    public Page<T> findPage(long after, int limit) {
+        checkLimit(limit);
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        long last = sequence.get();
+        long id = Math.max(after, 0);
+        while (page.size() < limit && id < last) {
+            T entity = entities.get(++id);
+            if (entity != null) {
+                page.add(entity);
+            }
+        }
+        return new Page<>(page, page.size() == limit ? String.valueOf(id) : null);
+    }
+
+    /**
+     * Same as findPage(after, limit) but each entity reduced to the given fields plus id
+     */
+    public Page<Map<String, Object>> findPage(long after, int limit, Collection<String> fields) {
+        for (String field : fields) {
+            if (!columns.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "' for " + name);
+            }
+        }
+
+        Page<T> page = findPage(after, limit);
+        List<Map<String, Object>> rows = new ArrayList<>(page.items().size());
+        for (T entity : page.items()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (Map.Entry<String, MethodHandle> column : columns.entrySet()) {
+                if (column.getKey().equals("id") || fields.contains(column.getKey())) {
+                    row.put(column.getKey(), read(column.getValue(), entity));
+                }
+            }
+            rows.add(row);
+        }
+        return new Page<>(rows, page.nextCursor());
+    }
+
+    /**
+     * Full scan in id order, for queries without an index
+     */
+    public List<T> findBy(Predicate<? super T> predicate) {
+        List<T> matches = new ArrayList<>();
+        for (T entity : entities.values()) {
+            if (predicate.test(entity)) {
+                matches.add(entity);
+            }
+        }
+        matches.sort(Comparator.comparingLong(idOf));
+        return matches;
+    }
+
+    /**
+     * Resolve index hits (ascending ids) that still satisfy the predicate
+     */
+    public List<T> findByIds(long[] ids, Predicate<? super T> predicate) {
+        List<T> matches = new ArrayList<>();
+        for (long id : ids) {
+            T entity = entities.get(id);
+            if (entity != null && predicate.test(entity)) {
+                matches.add(entity);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Save entity (insert with the next id if new, otherwise replace the existing one)
+     */
+    public T save(T entity) {
+        long id = idOf.applyAsLong(entity);
+        if (id == 0) {
+            T inserted = idAssigner.withId(entity, sequence.incrementAndGet());
+            write(idOf.applyAsLong(inserted), inserted);
+            return inserted;
+        }
+
+        synchronized (lockFor(id)) {
+            if (!entities.containsKey(id)) {
+                throw new NoSuchElementException("Entity not found for update in " + name);
+            }
+            write(id, entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Save all entities; updates are checked up front so a missing id fails before anything is written
+     */
+    public List<T> saveAll(Collection<T> toSave) {
+        for (T entity : toSave) {
+            long id = idOf.applyAsLong(entity);
+            if (id != 0 && !entities.containsKey(id)) {
+                throw new NoSuchElementException("Entity not found for update in " + name + ": " + entity);
+            }
+        }
+
+        List<T> saved = new ArrayList<>(toSave.size());
+        for (T entity : toSave) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    /**
+     * Replace an existing entity with change applied to it, atomically with respect to other writes
+     * @return false if there is no entity with that id
+     */
+    public boolean update(long id, UnaryOperator<T> change) {
+        if (id == 0) {
+            return false;
+        }
+        synchronized (lockFor(id)) {
+            T current = entities.get(id);
+            if (current == null) {
+                return false;
+            }
+            write(id, change.apply(current));
+            return true;
+        }
+    }
+
+    public boolean deleteById(long id) {
+        if (id == 0) {
+            return false;
+        }
+        synchronized (lockFor(id)) {
+            T removed = entities.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            for (Index<T> index : indexes) {
+                index.remove(id, removed);
+            }
+            version.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Changes after every write, once the entity and its indexes are updated
+     */
+    public long version() {
+        return version.get();
+    }
+
+    public int count() {
+        return entities.size();
+    }
+
+    public void clear() {
+        synchronized (locks) {
+            entities.clear();
+            for (Index<T> index : indexes) {
+                index.clear();
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private void write(long id, T entity) {
+        synchronized (lockFor(id)) {
+            T previous = entities.put(id, entity);
+            for (Index<T> index : indexes) {
+                if (previous != null) {
+                    index.remove(id, previous);
+                }
+                index.add(id, entity);
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private Object lockFor(long id) {
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+    }
+
+    private static Object read(MethodHandle accessor, Object entity) {
+        try {
+            return (Object) accessor.invokeExact(entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
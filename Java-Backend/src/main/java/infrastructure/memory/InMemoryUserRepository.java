@@ -0,0 +1,105 @@
+package infrastructure.memory;
+
+import domain.common.Page;
+import domain.user.User;
+import ports.user.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * UserRepository kept entirely in process memory, selected with storage.type=memory.
+ * Email lookups and name searches use secondary indexes; both are case-insensitive,
+ * like MySQL's default collation.
+ */
+public class InMemoryUserRepository implements UserRepository {
+    private final InMemoryRepository<User> users =
+            new InMemoryRepository<>(User.class, User::id, (user, id) -> new User(id, user.name(), user.email()));
+    private final HashIndex<User> emailIndex =
+            users.addIndex(new HashIndex<>(user -> user.email() == null ? null : user.email().toLowerCase(Locale.ROOT)));
+    private final TrigramIndex<User> nameIndex = users.addIndex(new TrigramIndex<>(User::name));
+
+    @Override
+    public List<User> findAll() {
+        return users.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return users.streamAll();
+    }
+
+    @Override
+    public Page<User> findPage(long after, int limit) {
+        return users.findPage(after, limit);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findPage(long after, int limit, List<String> fields) {
+        return users.findPage(after, limit, fields);
+    }
+
+    @Override
+    public Optional<User> findBydId(long id) {
+        return users.findById(id);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String key = email.toLowerCase(Locale.ROOT);
+        return users.findByIds(emailIndex.find(key), user -> key.equalsIgnoreCase(user.email()))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<User> findByNameContaining(String namePattern) {
+        String needle = TrigramIndex.normalize(namePattern);
+        long[] candidates = nameIndex.candidates(needle);
+        return candidates == null
+                ? users.findBy(user -> TrigramIndex.normalize(user.name()).contains(needle))
+                : users.findByIds(candidates, user -> TrigramIndex.normalize(user.name()).contains(needle));
+    }
+
+    @Override
+    public User save(User user) {
+        return users.save(user);
+    }
+
+    @Override
+    public List<User> saveAll(Collection<User> toSave) {
+        return users.saveAll(toSave);
+    }
+
+    @Override
+    public boolean updateFields(long id, Map<String, Object> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        for (String field : fields.keySet()) {
+            if (!field.equals("name") && !field.equals("email")) {
+                throw new IllegalArgumentException("Cannot update field '" + field + "' of users");
+            }
+        }
+        return users.update(id, user -> new User(id,
+                fields.containsKey("name") ? (String) fields.get("name") : user.name(),
+                fields.containsKey("email") ? (String) fields.get("email") : user.email()));
+    }
+
+    @Override
+    public long version() {
+        return users.version();
+    }
+
+    @Override
+    public boolean deleteById(long id) {
+        return users.deleteById(id);
+    }
+}
@@ -0,0 +1,13 @@
+package infrastructure.memory;
+
+/**
+ * Secondary index maintained by an InMemoryRepository on every write
+ * @param <T> The entity type
+ */
+public interface Index<T> {
+    void add(long id, T entity);
+
+    void remove(long id, T entity);
+
+    void clear();
+}
@@ -0,0 +1,73 @@
+package infrastructure.memory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Substring index over a text attribute. Every lower-cased three-character window of the
+ * text maps to the ids containing it, so a "contains" query only has to verify the ids
+ * listed under the rarest trigram of the query instead of scanning every entity.
+ * @param <T> The entity type
+ */
+public class TrigramIndex<T> implements Index<T> {
+    private final Function<? super T, String> textFunction;
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    public TrigramIndex(Function<? super T, String> textFunction) {
+        this.textFunction = textFunction;
+    }
+
+    @Override
+    public void add(long id, T entity) {
+        String text = normalize(textFunction.apply(entity));
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            postings.computeIfAbsent(text.substring(i, i + 3), k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    @Override
+    public void remove(long id, T entity) {
+        String text = normalize(textFunction.apply(entity));
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            postings.computeIfPresent(text.substring(i, i + 3), (k, set) -> {
+                set.remove(id);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Ids that may contain the query (to be verified by the caller), or null when the query
+     * is shorter than a trigram and every entity is a candidate
+     */
+    public long[] candidates(String query) {
+        String text = normalize(query);
+        if (text.length() < 3) {
+            return null;
+        }
+
+        Set<Long> smallest = null;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            Set<Long> ids = postings.get(text.substring(i, i + 3));
+            if (ids == null) {
+                return new long[0];
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
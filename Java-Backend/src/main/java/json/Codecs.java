@@ -0,0 +1,344 @@
+package json;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Built-in codecs for scalars, containers and values whose type is only known at runtime
+ */
+final class Codecs {
+    private Codecs() {
+    }
+
+    static final JsonCodec<String> STRING = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, String value) {
+            writer.value(value);
+        }
+
+        @Override
+        public String read(JsonReader reader) {
+            if (reader.nextNullIf()) {
+                return null;
+            }
+            return reader.peek() == JsonReader.Token.STRING ? reader.nextString() : scalarAsString(reader);
+        }
+    };
+
+    static final JsonCodec<Long> LONG = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, Long value) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.longValue());
+            }
+        }
+
+        @Override
+        public Long read(JsonReader reader) {
+            return reader.nextNullIf() ? null : reader.nextLong();
+        }
+    };
+
+    static final JsonCodec<Integer> INT = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, Integer value) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.longValue());
+            }
+        }
+
+        @Override
+        public Integer read(JsonReader reader) {
+            return reader.nextNullIf() ? null : reader.nextInt();
+        }
+    };
+
+    static final JsonCodec<Short> SHORT = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, Short value) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.longValue());
+            }
+        }
+
+        @Override
+        public Short read(JsonReader reader) {
+            if (reader.nextNullIf()) {
+                return null;
+            }
+            int value = reader.nextInt();
+            if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                throw new JsonException("Number out of range for short: " + value);
+            }
+            return (short) value;
+        }
+    };
+
+    static final JsonCodec<Double> DOUBLE = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, Double value) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.doubleValue());
+            }
+        }
+
+        @Override
+        public Double read(JsonReader reader) {
+            return reader.nextNullIf() ? null : reader.nextDouble();
+        }
+    };
+
+    static final JsonCodec<Float> FLOAT = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, Float value) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.doubleValue());
+            }
+        }
+
+        @Override
+        public Float read(JsonReader reader) {
+            return reader.nextNullIf() ? null : (float) reader.nextDouble();
+        }
+    };
+
+    static final JsonCodec<Boolean> BOOLEAN = new JsonCodec<>() {
+        @Override
+        public void write(JsonWriter writer, Boolean value) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.booleanValue());
+            }
+        }
+
+        @Override
+        public Boolean read(JsonReader reader) {
+            return reader.nextNullIf() ? null : reader.nextBoolean();
+        }
+    };
+
+    /**
+     * Writes by runtime type; reads into Map, List, String, Long, Double or Boolean
+     */
+    static final JsonCodec<Object> DYNAMIC = new JsonCodec<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter writer, Object value) {
+            if (value == null) {
+                writer.nullValue();
+            } else if (value instanceof String s) {
+                writer.value(s);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                writer.value(((Number) value).longValue());
+            } else if (value instanceof Number n) {
+                writer.value(n.doubleValue());
+            } else if (value instanceof Boolean b) {
+                writer.value(b.booleanValue());
+            } else if (value instanceof Optional<?> optional) {
+                write(writer, optional.orElse(null));
+            } else if (value instanceof Iterable<?> iterable) {
+                writer.beginArray();
+                for (Object element : iterable) {
+                    write(writer, element);
+                }
+                writer.endArray();
+            } else if (value instanceof Map<?, ?> map) {
+                writer.beginObject();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writer.name(String.valueOf(entry.getKey()));
+                    write(writer, entry.getValue());
+                }
+                writer.endObject();
+            } else if (value instanceof Enum<?> e) {
+                writer.value(e.name());
+            } else if (value.getClass().isRecord()) {
+                ((JsonCodec<Object>) Json.codec(value.getClass())).write(writer, value);
+            } else {
+                writer.value(value.toString());
+            }
+        }
+
+        @Override
+        public Object read(JsonReader reader) {
+            return switch (reader.peek()) {
+                case BEGIN_OBJECT -> {
+                    Map<String, Object> map = Json.newMap();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        map.put(reader.nextName(), read(reader));
+                    }
+                    reader.endObject();
+                    yield map;
+                }
+                case BEGIN_ARRAY -> {
+                    Collection<Object> list = Json.newCollection(false);
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        list.add(read(reader));
+                    }
+                    reader.endArray();
+                    yield list;
+                }
+                case STRING -> reader.nextString();
+                case NUMBER -> {
+                    double d = reader.nextDouble();
+                    yield d == Math.rint(d) && Math.abs(d) < 0x1p53 ? (Object) (long) d : (Object) d;
+                }
+                case BOOLEAN -> reader.nextBoolean();
+                case NULL -> {
+                    reader.nextNullIf();
+                    yield null;
+                }
+                default -> throw new JsonException("Unexpected token " + reader.peek());
+            };
+        }
+    };
+
+    private static String scalarAsString(JsonReader reader) {
+        return switch (reader.peek()) {
+            case NUMBER -> {
+                double d = reader.nextDouble();
+                yield d == Math.rint(d) && Math.abs(d) < 0x1p53 ? Long.toString((long) d) : Double.toString(d);
+            }
+            case BOOLEAN -> Boolean.toString(reader.nextBoolean());
+            default -> throw new JsonException("Expected a string but was " + reader.peek());
+        };
+    }
+
+    static final class CollectionCodec implements JsonCodec<Collection<Object>> {
+        private final JsonCodec<Object> elementCodec;
+        private final boolean set;
+
+        CollectionCodec(JsonCodec<Object> elementCodec, boolean set) {
+            this.elementCodec = elementCodec;
+            this.set = set;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Collection<Object> value) {
+            if (value == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginArray();
+            if (value instanceof List<Object> list && list instanceof java.util.RandomAccess) {
+                for (int i = 0, n = list.size(); i < n; i++) {
+                    elementCodec.write(writer, list.get(i));
+                }
+            } else {
+                for (Object element : value) {
+                    elementCodec.write(writer, element);
+                }
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public Collection<Object> read(JsonReader reader) {
+            if (reader.nextNullIf()) {
+                return null;
+            }
+            Collection<Object> result = Json.newCollection(set);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                result.add(elementCodec.read(reader));
+            }
+            reader.endArray();
+            return result;
+        }
+    }
+
+    static final class MapCodec implements JsonCodec<Map<String, Object>> {
+        private final JsonCodec<Object> valueCodec;
+
+        MapCodec(JsonCodec<Object> valueCodec) {
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Map<String, Object> value) {
+            if (value == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            for (Map.Entry<String, Object> entry : value.entrySet()) {
+                writer.name(String.valueOf(entry.getKey()));
+                valueCodec.write(writer, entry.getValue());
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public Map<String, Object> read(JsonReader reader) {
+            if (reader.nextNullIf()) {
+                return null;
+            }
+            Map<String, Object> result = Json.newMap();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                result.put(reader.nextName(), valueCodec.read(reader));
+            }
+            reader.endObject();
+            return result;
+        }
+    }
+
+    static final class OptionalCodec implements JsonCodec<Optional<Object>> {
+        private final JsonCodec<Object> valueCodec;
+
+        OptionalCodec(JsonCodec<Object> valueCodec) {
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Optional<Object> value) {
+            valueCodec.write(writer, value == null ? null : value.orElse(null));
+        }
+
+        @Override
+        public Optional<Object> read(JsonReader reader) {
+            return Optional.ofNullable(valueCodec.read(reader));
+        }
+    }
+
+    static final class EnumCodec implements JsonCodec<Object> {
+        private final Class<?> type;
+
+        EnumCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Object value) {
+            writer.value(value == null ? null : ((Enum<?>) value).name());
+        }
+
+        @Override
+        public Object read(JsonReader reader) {
+            if (reader.nextNullIf()) {
+                return null;
+            }
+            String name = reader.nextString();
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw new JsonException("Unknown " + type.getSimpleName() + " value: " + name);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package json;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entry point of the JSON codec subsystem.
+ * Codecs are built once per type (records from their components, containers from their
+ * element types) and cached, so encoding and decoding never re-inspect classes.
+ */
+public final class Json {
+    private static final Map<Type, JsonCodec<?>> CODECS = new ConcurrentHashMap<>();
+    private static final Map<Type, JsonCodec<?>> IN_PROGRESS = new HashMap<>();
+
+    static {
+        register(String.class, Codecs.STRING);
+        register(long.class, Codecs.LONG);
+        register(Long.class, Codecs.LONG);
+        register(int.class, Codecs.INT);
+        register(Integer.class, Codecs.INT);
+        register(short.class, Codecs.SHORT);
+        register(Short.class, Codecs.SHORT);
+        register(double.class, Codecs.DOUBLE);
+        register(Double.class, Codecs.DOUBLE);
+        register(float.class, Codecs.FLOAT);
+        register(Float.class, Codecs.FLOAT);
+        register(boolean.class, Codecs.BOOLEAN);
+        register(Boolean.class, Codecs.BOOLEAN);
+        register(Object.class, Codecs.DYNAMIC);
+    }
+
+    private Json() {
+    }
+
+    /**
+     * Serialize any supported value to UTF-8 JSON bytes
+     */
+    public static byte[] toBytes(Object value) {
+        JsonWriter writer = new JsonWriter();
+        write(writer, value);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Write a value using the codec of its runtime type
+     */
+    public static void write(JsonWriter writer, Object value) {
+        Codecs.DYNAMIC.write(writer, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T read(byte[] json, Class<T> type) {
+        return (T) read(json, (Type) type);
+    }
+
+    /**
+     * Decode a complete document into the given (possibly generic) type
+     */
+    public static Object read(byte[] json, Type type) {
+        JsonReader reader = new JsonReader(json);
+        if (reader.peek() == JsonReader.Token.END) {
+            throw new JsonException("Empty JSON document");
+        }
+        Object value = codec(type).read(reader);
+        reader.endDocument();
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> codec(Class<T> type) {
+        return (JsonCodec<T>) codec((Type) type);
+    }
+
+    /**
+     * Look up or build the codec for a type
+     */
+    public static JsonCodec<?> codec(Type type) {
+        JsonCodec<?> codec = CODECS.get(type);
+        if (codec != null) {
+            return codec;
+        }
+        synchronized (IN_PROGRESS) {
+            codec = CODECS.get(type);
+            if (codec == null) {
+                codec = IN_PROGRESS.get(type);
+            }
+            return codec != null ? codec : create(type);
+        }
+    }
+
+    private static JsonCodec<?> create(Type type) {
+        if (type instanceof Class<?> cls) {
+            if (cls.isRecord()) {
+                RecordCodec<?> codec = new RecordCodec<>(cls);
+                IN_PROGRESS.put(type, codec);
+                try {
+                    codec.init();
+                } finally {
+                    IN_PROGRESS.remove(type);
+                }
+                return register(type, codec);
+            }
+            if (cls.isEnum()) {
+                return register(type, new Codecs.EnumCodec(cls));
+            }
+            if (List.class.isAssignableFrom(cls) || cls == Collection.class || cls == Iterable.class) {
+                return register(type, new Codecs.CollectionCodec(Codecs.DYNAMIC, false));
+            }
+            if (Set.class.isAssignableFrom(cls)) {
+                return register(type, new Codecs.CollectionCodec(Codecs.DYNAMIC, true));
+            }
+            if (Map.class.isAssignableFrom(cls)) {
+                return register(type, new Codecs.MapCodec(Codecs.DYNAMIC));
+            }
+            if (cls == Optional.class) {
+                return register(type, new Codecs.OptionalCodec(Codecs.DYNAMIC));
+            }
+        } else if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw) {
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (Set.class.isAssignableFrom(raw)) {
+                return register(type, new Codecs.CollectionCodec(elementCodec(arguments[0]), true));
+            }
+            if (Collection.class.isAssignableFrom(raw) || raw == Iterable.class) {
+                return register(type, new Codecs.CollectionCodec(elementCodec(arguments[0]), false));
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                return register(type, new Codecs.MapCodec(elementCodec(arguments[1])));
+            }
+            if (raw == Optional.class) {
+                return register(type, new Codecs.OptionalCodec(elementCodec(arguments[0])));
+            }
+        } else if (type instanceof WildcardType wildcard) {
+            return codec(wildcard.getUpperBounds()[0]);
+        } else if (type instanceof TypeVariable<?> variable) {
+            // Components of generic records (e.g. Page<T>) are encoded by runtime type
+            return codec(variable.getBounds()[0]);
+        }
+        throw new IllegalArgumentException("No JSON codec for type " + type.getTypeName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JsonCodec<Object> elementCodec(Type type) {
+        return (JsonCodec<Object>) codec(type);
+    }
+
+    private static JsonCodec<?> register(Type type, JsonCodec<?> codec) {
+        JsonCodec<?> existing = CODECS.putIfAbsent(type, codec);
+        return existing != null ? existing : codec;
+    }
+
+    /**
+     * Convenience for building generic collections of decoded values
+     */
+    static Collection<Object> newCollection(boolean set) {
+        return set ? new LinkedHashSet<>() : new ArrayList<>();
+    }
+
+    static Map<String, Object> newMap() {
+        return new LinkedHashMap<>();
+    }
+}
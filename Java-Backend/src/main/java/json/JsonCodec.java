@@ -0,0 +1,11 @@
+package json;
+
+/**
+ * Reads and writes one Java type directly on the streaming reader/writer
+ * @param <T> The Java type handled by this codec
+ */
+public interface JsonCodec<T> {
+    void write(JsonWriter writer, T value);
+
+    T read(JsonReader reader);
+}
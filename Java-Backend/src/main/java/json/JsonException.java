@@ -0,0 +1,15 @@
+package json;
+
+/**
+ * Thrown for malformed JSON input or values that cannot be bound to the target type.
+ * Extends IllegalArgumentException so the router answers 400 for bad request bodies.
+ */
+public class JsonException extends IllegalArgumentException {
+    public JsonException(String message) {
+        super(message);
+    }
+
+    public JsonException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
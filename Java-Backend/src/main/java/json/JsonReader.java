@@ -0,0 +1,501 @@
+package json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull tokenizer over UTF-8 encoded JSON bytes.
+ * Object keys are matched against pre-encoded names without creating Strings,
+ * so decoding a record only allocates the values it returns.
+ */
+public final class JsonReader {
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Token kinds returned by {@link #peek()}
+     */
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END }
+
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+    // True right after '[' or '{', where the next element must not be preceded by a comma
+    private boolean atFirstElement;
+
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public JsonReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Reader over the remaining bytes of a buffer; heap buffers are read in place
+     */
+    public static JsonReader of(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return new JsonReader(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return new JsonReader(copy);
+    }
+
+    public Token peek() {
+        skipWhitespace();
+        if (pos >= limit) {
+            return Token.END;
+        }
+        return switch (data[pos]) {
+            case '{' -> Token.BEGIN_OBJECT;
+            case '}' -> Token.END_OBJECT;
+            case '[' -> Token.BEGIN_ARRAY;
+            case ']' -> Token.END_ARRAY;
+            case '"' -> Token.STRING;
+            case 't', 'f' -> Token.BOOLEAN;
+            case 'n' -> Token.NULL;
+            case '-', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> Token.NUMBER;
+            default -> throw error("Unexpected character '" + (char) data[pos] + "'");
+        };
+    }
+
+    public void beginObject() {
+        expect('{');
+        atFirstElement = true;
+    }
+
+    public void endObject() {
+        expect('}');
+        atFirstElement = false;
+    }
+
+    public void beginArray() {
+        expect('[');
+        atFirstElement = true;
+    }
+
+    public void endArray() {
+        expect(']');
+        atFirstElement = false;
+    }
+
+    /**
+     * True if the current object or array has another element; consumes the separating comma.
+     * Elements after the first must be preceded by exactly one comma, and none may trail.
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        if (pos >= limit) {
+            throw error("Unexpected end of input");
+        }
+        byte b = data[pos];
+        if (b == '}' || b == ']') {
+            atFirstElement = false;
+            return false;
+        }
+        if (atFirstElement) {
+            atFirstElement = false;
+            if (b == ',') {
+                throw error("Unexpected ','");
+            }
+            return true;
+        }
+        if (b != ',') {
+            throw error("Expected ',' between elements");
+        }
+        pos++;
+        skipWhitespace();
+        if (pos >= limit) {
+            throw error("Unexpected end of input");
+        }
+        if (data[pos] == '}' || data[pos] == ']' || data[pos] == ',') {
+            throw error("Expected an element after ','");
+        }
+        return true;
+    }
+
+    /**
+     * Read an object key and the following colon, returning the index of the matching
+     * name in {@code names} (UTF-8 bytes, unquoted) or -1 if the key is unknown
+     */
+    public int nextName(byte[][] names) {
+        skipWhitespace();
+        expect('"');
+        int start = pos;
+        boolean escaped = false;
+        while (pos < limit && data[pos] != '"') {
+            if (data[pos] == '\\') {
+                escaped = true;
+                pos++;
+            }
+            pos++;
+        }
+        if (pos >= limit) {
+            throw error("Unterminated object key");
+        }
+        int end = pos++;
+        expect(':');
+
+        if (escaped) {
+            byte[] key = decodeString(start, end).getBytes(StandardCharsets.UTF_8);
+            return indexOf(names, key, 0, key.length);
+        }
+        return indexOf(names, data, start, end - start);
+    }
+
+    /**
+     * Read an object key as a String
+     */
+    public String nextName() {
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    public String nextString() {
+        skipWhitespace();
+        expect('"');
+        int start = pos;
+
+        // Fast path: plain ASCII without escapes maps 1:1 to Latin-1
+        while (pos < limit) {
+            byte b = data[pos];
+            if (b == '"') {
+                return new String(data, start, pos++ - start, StandardCharsets.ISO_8859_1);
+            }
+            if (b == '\\' || b < 0x20) {
+                break;
+            }
+            pos++;
+        }
+
+        pos = start;
+        int end = start;
+        while (end < limit && data[end] != '"') {
+            end += data[end] == '\\' ? 2 : 1;
+        }
+        if (end >= limit) {
+            throw error("Unterminated string");
+        }
+        String value = decodeString(start, end);
+        pos = end + 1;
+        return value;
+    }
+
+    public long nextLong() {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = pos < limit && data[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+
+        rejectLeadingZero();
+        long value = 0;
+        int digits = 0;
+        while (pos < limit && data[pos] >= '0' && data[pos] <= '9') {
+            int digit = data[pos++] - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw error("Number out of range");
+            }
+            value = value * 10 - digit;
+            digits++;
+        }
+        if (digits == 0) {
+            throw error("Expected a number");
+        }
+        if (pos < limit && (data[pos] == '.' || data[pos] == 'e' || data[pos] == 'E')) {
+            // Integral values written with a fraction or exponent, e.g. 1.0 or 1e3
+            pos = start;
+            double d = nextDouble();
+            if (d != Math.rint(d) || Math.abs(d) > 0x1p63) {
+                throw error("Expected an integer but was " + d);
+            }
+            return (long) d;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw error("Number out of range");
+        }
+        return negative ? value : -value;
+    }
+
+    public int nextInt() {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("Number out of range for int");
+        }
+        return (int) value;
+    }
+
+    public double nextDouble() {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = pos < limit && data[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+
+        rejectLeadingZero();
+        long mantissa = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean exact = true;
+
+        while (pos < limit && data[pos] >= '0' && data[pos] <= '9') {
+            if (significant < 18) {
+                mantissa = mantissa * 10 + (data[pos] - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+            } else {
+                exact = false;
+            }
+            pos++;
+        }
+        if (pos == start + (negative ? 1 : 0)) {
+            throw error("Expected a number");
+        }
+        if (pos < limit && data[pos] == '.') {
+            pos++;
+            requireDigit("fraction");
+            while (pos < limit && data[pos] >= '0' && data[pos] <= '9') {
+                if (significant < 18) {
+                    mantissa = mantissa * 10 + (data[pos] - '0');
+                    if (mantissa != 0) {
+                        significant++;
+                    }
+                    scale--;
+                } else {
+                    exact = false;
+                }
+                pos++;
+            }
+        }
+        if (pos < limit && (data[pos] == 'e' || data[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = pos < limit && data[pos] == '-';
+            if (pos < limit && (data[pos] == '-' || data[pos] == '+')) {
+                pos++;
+            }
+            requireDigit("exponent");
+            int exponent = 0;
+            while (pos < limit && data[pos] >= '0' && data[pos] <= '9') {
+                exponent = Math.min(exponent * 10 + (data[pos++] - '0'), 10_000);
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        // Exact fast path: mantissa fits in 53 bits and the power of ten is exactly representable
+        if (exact && mantissa < (1L << 53) && scale >= -22 && scale <= 22) {
+            double value = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(data, start, pos - start, StandardCharsets.US_ASCII));
+    }
+
+    public boolean nextBoolean() {
+        skipWhitespace();
+        if (matchLiteral("true")) {
+            return true;
+        }
+        if (matchLiteral("false")) {
+            return false;
+        }
+        throw error("Expected a boolean");
+    }
+
+    /**
+     * Consume a null literal if present
+     */
+    public boolean nextNullIf() {
+        skipWhitespace();
+        return pos < limit && data[pos] == 'n' && matchLiteral("null");
+    }
+
+    /**
+     * Skip the next value, including nested objects and arrays
+     */
+    public void skipValue() {
+        switch (peek()) {
+            case BEGIN_OBJECT -> {
+                beginObject();
+                while (hasNext()) {
+                    nextName((byte[][]) null);
+                    skipValue();
+                }
+                endObject();
+            }
+            case BEGIN_ARRAY -> {
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+            }
+            case STRING -> skipString();
+            case NUMBER -> nextDouble();
+            case BOOLEAN -> nextBoolean();
+            case NULL -> nextNullIf();
+            default -> throw error("Unexpected token " + peek());
+        }
+    }
+
+    /**
+     * Fail unless only whitespace remains
+     */
+    public void endDocument() {
+        if (peek() != Token.END) {
+            throw error("Unexpected trailing content");
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (pos < limit && data[pos] != '"') {
+            pos += data[pos] == '\\' ? 2 : 1;
+        }
+        if (pos >= limit) {
+            throw error("Unterminated string");
+        }
+        pos++;
+    }
+
+    private String decodeString(int start, int end) {
+        char[] chars = new char[end - start];
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            int b = data[i] & 0xFF;
+            if (b == '\\') {
+                if (i + 1 >= end) {
+                    throw error("Bad escape sequence");
+                }
+                byte e = data[i + 1];
+                i += 2;
+                switch (e) {
+                    case '"' -> chars[length++] = '"';
+                    case '\\' -> chars[length++] = '\\';
+                    case '/' -> chars[length++] = '/';
+                    case 'b' -> chars[length++] = '\b';
+                    case 'f' -> chars[length++] = '\f';
+                    case 'n' -> chars[length++] = '\n';
+                    case 'r' -> chars[length++] = '\r';
+                    case 't' -> chars[length++] = '\t';
+                    case 'u' -> {
+                        if (i + 4 > end) {
+                            throw error("Bad unicode escape");
+                        }
+                        chars[length++] = (char) ((hex(data[i]) << 12) | (hex(data[i + 1]) << 8)
+                                | (hex(data[i + 2]) << 4) | hex(data[i + 3]));
+                        i += 4;
+                    }
+                    default -> throw error("Bad escape sequence \\" + (char) e);
+                }
+            } else if (b < 0x20) {
+                throw error("Unescaped control character in string");
+            } else if (b < 0x80) {
+                chars[length++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end) {
+                chars[length++] = (char) (((b & 0x1F) << 6) | (data[i + 1] & 0x3F));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end) {
+                chars[length++] = (char) (((b & 0x0F) << 12) | ((data[i + 1] & 0x3F) << 6) | (data[i + 2] & 0x3F));
+                i += 3;
+            } else if ((b & 0xF8) == 0xF0 && i + 3 < end) {
+                int codePoint = ((b & 0x07) << 18) | ((data[i + 1] & 0x3F) << 12)
+                        | ((data[i + 2] & 0x3F) << 6) | (data[i + 3] & 0x3F);
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+                i += 4;
+            } else {
+                throw error("Invalid UTF-8 in string");
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    private int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        throw error("Bad hex digit in unicode escape");
+    }
+
+    private static int indexOf(byte[][] names, byte[] key, int offset, int length) {
+        if (names == null) {
+            return -1;
+        }
+        for (int n = 0; n < names.length; n++) {
+            byte[] name = names[n];
+            if (name.length == length && Arrays.equals(name, 0, length, key, offset, offset + length)) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * JSON numbers have no leading zeros: 0 may only be followed by a fraction or exponent
+     */
+    private void rejectLeadingZero() {
+        if (pos + 1 < limit && data[pos] == '0' && data[pos + 1] >= '0' && data[pos + 1] <= '9') {
+            throw error("Leading zero in number");
+        }
+    }
+
+    private void requireDigit(String part) {
+        if (pos >= limit || data[pos] < '0' || data[pos] > '9') {
+            throw error("Expected a digit in number " + part);
+        }
+    }
+
+    private boolean matchLiteral(String literal) {
+        int length = literal.length();
+        if (pos + length > limit) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        pos += length;
+        return true;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (pos >= limit || data[pos] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit) {
+            byte b = data[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private JsonException error(String message) {
+        return new JsonException(message + " at offset " + pos);
+    }
+}
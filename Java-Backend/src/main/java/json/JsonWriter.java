@@ -0,0 +1,318 @@
+package json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer that encodes UTF-8 straight into a byte buffer.
+ * When constructed with an OutputStream the buffer is flushed to it whenever it fills up,
+ * so arbitrarily large documents can be written in constant memory.
+ */
+public final class JsonWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream sink;
+    private byte[] buffer;
+    private int count;
+    private boolean needsComma;
+
+    public JsonWriter() {
+        this(256);
+    }
+
+    public JsonWriter(int initialCapacity) {
+        this.sink = null;
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Writer that flushes to the given stream whenever its buffer is full
+     */
+    public JsonWriter(OutputStream sink, int bufferSize) {
+        this.sink = sink;
+        this.buffer = new byte[Math.max(64, bufferSize)];
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        writeByte('{');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        writeByte('}');
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        writeByte('[');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        writeByte(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Write an object key
+     */
+    public JsonWriter name(String name) {
+        if (needsComma) {
+            writeByte(',');
+        }
+        writeQuoted(name);
+        writeByte(':');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Write an object key that was pre-encoded with {@link #encodeName(String)}
+     */
+    public JsonWriter name(byte[] encodedName) {
+        if (needsComma) {
+            writeByte(',');
+        }
+        writeRaw(encodedName, 0, encodedName.length);
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeQuoted(value);
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        beforeValue();
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+            writeByte('.');
+            writeByte('0');
+        } else {
+            writeAscii(Double.toString(value));
+        }
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        byte[] literal = value ? TRUE : FALSE;
+        writeRaw(literal, 0, literal.length);
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        beforeValue();
+        writeRaw(NULL, 0, NULL.length);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Number of buffered bytes not yet flushed
+     */
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, count).asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy the buffered bytes to a stream without an intermediate array
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, count);
+    }
+
+    /**
+     * Push buffered bytes to the sink stream, if there is one
+     */
+    public void flush() {
+        if (sink == null || count == 0) {
+            return;
+        }
+        try {
+            sink.write(buffer, 0, count);
+            count = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Clear the buffer so the writer can be reused for another document
+     */
+    public void reset() {
+        count = 0;
+        needsComma = false;
+    }
+
+    /**
+     * Pre-encode an object key (quoted, escaped and followed by ':') for repeated writes
+     */
+    public static byte[] encodeName(String name) {
+        JsonWriter writer = new JsonWriter(name.length() + 8);
+        writer.writeQuoted(name);
+        writer.writeByte(':');
+        return writer.toByteArray();
+    }
+
+    private void beforeValue() {
+        if (needsComma) {
+            writeByte(',');
+        }
+    }
+
+    private void writeQuoted(String value) {
+        int length = value.length();
+        ensure(1);
+        buffer[count++] = '"';
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    ensure(1);
+                    buffer[count++] = (byte) c;
+                } else {
+                    writeEscaped(c);
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // Lone surrogates cannot be encoded as UTF-8
+                char encodable = Character.isSurrogate(c) ? '\uFFFD' : c;
+                ensure(3);
+                buffer[count++] = (byte) (0xE0 | (encodable >> 12));
+                buffer[count++] = (byte) (0x80 | ((encodable >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (encodable & 0x3F));
+            }
+        }
+
+        ensure(1);
+        buffer[count++] = '"';
+    }
+
+    private void writeEscaped(char c) {
+        ensure(6);
+        buffer[count++] = '\\';
+        switch (c) {
+            case '"' -> buffer[count++] = '"';
+            case '\\' -> buffer[count++] = '\\';
+            case '\n' -> buffer[count++] = 'n';
+            case '\r' -> buffer[count++] = 'r';
+            case '\t' -> buffer[count++] = 't';
+            case '\b' -> buffer[count++] = 'b';
+            case '\f' -> buffer[count++] = 'f';
+            default -> {
+                buffer[count++] = 'u';
+                buffer[count++] = '0';
+                buffer[count++] = '0';
+                buffer[count++] = HEX[c >> 4];
+                buffer[count++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(MIN_LONG, 0, MIN_LONG.length);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int pos = count + digits;
+        count = pos;
+        do {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void writeAscii(String value) {
+        int length = value.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeByte(char b) {
+        ensure(1);
+        buffer[count++] = (byte) b;
+    }
+
+    private void writeRaw(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra <= buffer.length) {
+            return;
+        }
+        if (sink != null && extra <= buffer.length) {
+            flush();
+            if (count + extra <= buffer.length) {
+                return;
+            }
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+    }
+}
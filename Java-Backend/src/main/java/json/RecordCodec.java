@@ -0,0 +1,185 @@
+package json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec generated once from a record's components.
+ * Accessors and the canonical constructor are resolved as MethodHandles, primitive
+ * components are written without boxing and keys are matched as raw UTF-8 bytes.
+ */
+final class RecordCodec<T> implements JsonCodec<T> {
+    private enum Kind { LONG, INT, DOUBLE, BOOLEAN, OBJECT }
+
+    private final Class<T> type;
+    private final byte[][] names;
+    private final byte[][] encodedNames;
+    private final Kind[] kinds;
+    private final MethodHandle[] accessors;
+    private final Type[] componentTypes;
+    private final Object[] defaults;
+    private final MethodHandle constructor;
+    private JsonCodec<Object>[] codecs;
+
+    RecordCodec(Class<T> type) {
+        this.type = type;
+        RecordComponent[] components = type.getRecordComponents();
+        int n = components.length;
+        this.names = new byte[n][];
+        this.encodedNames = new byte[n][];
+        this.kinds = new Kind[n];
+        this.accessors = new MethodHandle[n];
+        this.componentTypes = new Type[n];
+        this.defaults = new Object[n];
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?>[] parameterTypes = new Class<?>[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                RecordComponent component = components[i];
+                Class<?> componentClass = component.getType();
+                parameterTypes[i] = componentClass;
+                componentTypes[i] = component.getGenericType();
+                names[i] = component.getName().getBytes(StandardCharsets.UTF_8);
+                encodedNames[i] = JsonWriter.encodeName(component.getName());
+                kinds[i] = kindOf(componentClass);
+                defaults[i] = defaultValue(componentClass);
+
+                Method accessor = component.getAccessor();
+                accessor.setAccessible(true);
+                MethodHandle handle = lookup.unreflect(accessor);
+                Class<?> returnType = kinds[i] == Kind.OBJECT ? Object.class : componentClass;
+                accessors[i] = handle.asType(MethodType.methodType(returnType, Object.class));
+            }
+
+            Constructor<T> canonical = type.getDeclaredConstructor(parameterTypes);
+            canonical.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(canonical)
+                    .asSpreader(Object[].class, n)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot build JSON codec for " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Resolve component codecs; done after registration so self-referencing records work
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void init() {
+        JsonCodec<Object>[] resolved = new JsonCodec[componentTypes.length];
+        for (int i = 0; i < componentTypes.length; i++) {
+            if (kinds[i] == Kind.OBJECT) {
+                resolved[i] = (JsonCodec<Object>) Json.codec(componentTypes[i]);
+            }
+        }
+        this.codecs = resolved;
+    }
+
+    @Override
+    public void write(JsonWriter writer, T value) {
+        if (value == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        try {
+            for (int i = 0; i < accessors.length; i++) {
+                writer.name(encodedNames[i]);
+                MethodHandle accessor = accessors[i];
+                switch (kinds[i]) {
+                    case LONG -> writer.value((long) accessor.invokeExact((Object) value));
+                    case INT -> writer.value((int) accessor.invokeExact((Object) value));
+                    case DOUBLE -> writer.value((double) accessor.invokeExact((Object) value));
+                    case BOOLEAN -> writer.value((boolean) accessor.invokeExact((Object) value));
+                    case OBJECT -> codecs[i].write(writer, (Object) accessor.invokeExact((Object) value));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to read component of " + type.getName(), t);
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public T read(JsonReader reader) {
+        if (reader.nextNullIf()) {
+            return null;
+        }
+
+        Object[] args = defaults.clone();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int index = reader.nextName(names);
+            if (index < 0) {
+                reader.skipValue();
+                continue;
+            }
+            if (kinds[index] != Kind.OBJECT && reader.nextNullIf()) {
+                continue;
+            }
+            args[index] = switch (kinds[index]) {
+                case LONG -> reader.nextLong();
+                case INT -> reader.nextInt();
+                case DOUBLE -> reader.nextDouble();
+                case BOOLEAN -> reader.nextBoolean();
+                case OBJECT -> {
+                    Object value = codecs[index].read(reader);
+                    yield value != null ? value : defaults[index];
+                }
+            };
+        }
+        reader.endObject();
+
+        try {
+            return type.cast((Object) constructor.invokeExact(args));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new JsonException("Cannot create " + type.getSimpleName(), t);
+        }
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == long.class) {
+            return Kind.LONG;
+        } else if (type == int.class) {
+            return Kind.INT;
+        } else if (type == double.class) {
+            return Kind.DOUBLE;
+        } else if (type == boolean.class) {
+            return Kind.BOOLEAN;
+        }
+        return Kind.OBJECT;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == double.class) {
+            return 0d;
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,49 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Smallest delay (e.g. time spent queued) recorded during the last full interval, as CoDel
+ * measures a standing queue: a burst that drains within the interval leaves some requests
+ * with little delay and so never raises the minimum, while a persistent backlog does.
+ * Recording is a CAS on a single long; an interval without samples reads as no delay.
+ */
+public final class DelayWindow {
+    private final long intervalNanos;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong windowMin = new AtomicLong(Long.MAX_VALUE);
+    private volatile long lastMin;
+
+    public DelayWindow(long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    public void record(long delayNanos) {
+        roll(System.nanoTime());
+        long current;
+        do {
+            current = windowMin.get();
+        } while (delayNanos < current && !windowMin.compareAndSet(current, delayNanos));
+    }
+
+    /**
+     * Minimum delay of the last full interval in nanoseconds, 0 if it had no samples
+     */
+    public long nanos() {
+        roll(System.nanoTime());
+        return lastMin;
+    }
+
+    private void roll(long now) {
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            long min = windowMin.getAndSet(Long.MAX_VALUE);
+            // A window that ended more than an interval ago says nothing about the queue now
+            lastMin = min == Long.MAX_VALUE || now - start >= 2 * intervalNanos ? 0 : min;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry of named metrics, rendered in the Prometheus text exposition format.
+ * Metrics are looked up once (e.g. per route when the route table is built) and the
+ * returned objects are then updated directly, so the hot path never touches the registry.
+ * Labels are given as alternating name/value pairs.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    // Prometheus "le" bounds in seconds for histograms recorded in nanoseconds
+    private static final double[] LATENCY_BUCKETS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private enum Type { COUNTER, GAUGE, HISTOGRAM }
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).series()
+                .computeIfAbsent(formatLabels(labels), key -> new Counter());
+    }
+
+    /**
+     * Histogram of durations in nanoseconds, exposed in seconds
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).series()
+                .computeIfAbsent(formatLabels(labels), key -> new Histogram());
+    }
+
+    /**
+     * Latency histogram &lt;name&gt;_duration_seconds plus &lt;name&gt;_errors_total, with the same labels
+     */
+    public Timer timer(String name, String help, String... labels) {
+        return new Timer(histogram(name + "_duration_seconds", help, labels),
+                counter(name + "_errors_total", help + " (failures)", labels));
+    }
+
+    /**
+     * Value read at scrape time; registering the same name and labels again replaces the supplier
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series().put(formatLabels(labels), value);
+    }
+
+    /**
+     * Counter whose value is owned elsewhere (e.g. a component's own LongAdder), read at scrape time
+     */
+    public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series().put(formatLabels(labels), value);
+    }
+
+    /**
+     * Render every metric in the Prometheus text format (version 0.0.4)
+     */
+    public byte[] scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(escapeHelp(family.help())).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ')
+                    .append(family.type().name().toLowerCase()).append('\n');
+
+            for (Map.Entry<String, Object> series : family.series().entrySet()) {
+                String labels = series.getKey();
+                Object metric = series.getValue();
+                if (metric instanceof Histogram histogram) {
+                    writeHistogram(out, family.name(), labels, histogram);
+                } else if (metric instanceof Counter counter) {
+                    sample(out, family.name(), labels, counter.get());
+                } else if (metric instanceof DoubleSupplier supplier) {
+                    sample(out, family.name(), labels, supplier.getAsDouble());
+                }
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type, new ConcurrentSkipListMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type());
+        }
+        return family;
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long[] counts = histogram.snapshot();
+        long cumulative = 0;
+        int bucket = 0;
+        for (double bound : LATENCY_BUCKETS_SECONDS) {
+            long boundNanos = (long) (bound * 1e9);
+            // Fine buckets are attributed by their upper bound, so this is exact to within 12.5%
+            while (bucket < counts.length && Histogram.upperBound(bucket) <= boundNanos) {
+                cumulative += counts[bucket++];
+            }
+            sample(out, name + "_bucket", withLabel(labels, "le", BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString()), cumulative);
+        }
+        while (bucket < counts.length) {
+            cumulative += counts[bucket++];
+        }
+        sample(out, name + "_bucket", withLabel(labels, "le", "+Inf"), cumulative);
+        sample(out, name + "_sum", labels, histogram.sum() / 1e9);
+        sample(out, name + "_count", labels, cumulative);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+/**
+ * Latency histogram plus error counter for one operation
+ */
+public final class Timer {
+    private final Histogram latency;
+    private final Counter errors;
+
+    Timer(Histogram latency, Counter errors) {
+        this.latency = latency;
+        this.errors = errors;
+    }
+
+    /**
+     * Record a successful call that started at the given System.nanoTime() reading
+     * @return the elapsed nanoseconds
+     */
+    public long stop(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        latency.record(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Record a failed call; it counts towards latency as well
+     */
+    public void fail(long startNanos) {
+        latency.recordSince(startNanos);
+        errors.increment();
+    }
+
+    public Histogram latency() {
+        return latency;
+    }
+
+    public Counter errors() {
+        return errors;
+    }
+}
@@ -0,0 +1,42 @@
+package ports.user;
+
+import domain.common.Page;
+import domain.user.User;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Non-blocking counterpart of {@link UserRepository}: every call returns at once and the future
+ * completes on a database thread. Failures (including rejection when the database side is
+ * saturated) complete the future exceptionally rather than being thrown.
+ */
+public interface AsyncUserRepository {
+    CompletableFuture<List<User>> findAll();
+
+    /**
+     * Open a lazy read of all users; the caller must close the stream
+     */
+    CompletableFuture<Stream<User>> streamAll();
+
+    CompletableFuture<Page<User>> findPage(long after, int limit);
+    CompletableFuture<Page<Map<String, Object>>> findPage(long after, int limit, List<String> fields);
+    CompletableFuture<Optional<User>> findBydId(long id);
+    CompletableFuture<User> save(User user);
+    CompletableFuture<List<User>> saveAll(Collection<User> users);
+
+    /**
+     * See {@link UserRepository#updateFields(long, Map)}
+     */
+    CompletableFuture<Boolean> updateFields(long id, Map<String, Object> fields);
+
+    CompletableFuture<Boolean> deleteById(long id);
+
+    /**
+     * See {@link UserRepository#version()}; cheap, so answered synchronously
+     */
+    long version();
+}
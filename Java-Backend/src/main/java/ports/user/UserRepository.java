@@ -1,11 +1,54 @@
 package ports.user;
 
+import domain.common.Page;
 import domain.user.User;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository {
     List<User> findAll();
+
+    /**
+     * Lazily read all users; the caller must close the stream.
+     * Defaults to streaming the result of findAll for stores that are already in memory.
+     */
+    default Stream<User> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Users with id greater than after, in id order; after = 0 starts from the beginning
+     */
+    Page<User> findPage(long after, int limit);
+
+    /**
+     * Like findPage(after, limit) but only the given fields (plus id) of each user
+     */
+    Page<Map<String, Object>> findPage(long after, int limit, List<String> fields);
+
     Optional<User> findBydId(long id);
+    Optional<User> findByEmail(String email);
+    List<User> findByNameContaining(String namePattern);
     User save(User user);
+    List<User> saveAll(Collection<User> users);
+
+    /**
+     * Change only the given fields of a user, without loading it first
+     * @param fields field name to new value; id cannot be changed
+     * @return false if there is no user with that id
+     */
+    boolean updateFields(long id, Map<String, Object> fields);
+
+    boolean deleteById(long id);
+
+    /**
+     * Counter that changes after every write made through this repository, for cheap change
+     * detection (e.g. ETags); -1 when the store cannot tell
+     */
+    default long version() {
+        return -1;
+    }
 }